@@ -1,12 +1,17 @@
 package com.todoapp.config;
 
+import com.todoapp.security.AuthRateLimitFilter;
 import com.todoapp.security.JwtAuthenticationFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.metrics.MetricsEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -25,23 +30,36 @@ import org.springframework.web.cors.CorsConfigurationSource;
 public class SecurityConfig {
     
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final AuthRateLimitFilter authRateLimitFilter;
     private final UserDetailsService userDetailsService;
     private final CorsConfigurationSource corsConfigurationSource;
     
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${server.port:8080}") int serverPort,
+                                                   @Value("${management.server.port:-1}") int managementPort) throws Exception {
+        // Metrics lộ thời gian BCrypt, độ đầy pool và bộ đếm rate limit nên chỉ trả trên cổng quản trị riêng;
+        // cổng quản trị trùng hoặc không cấu hình thì metrics bị chặn hẳn, kể cả với user đã đăng nhập
+        boolean metricsOnManagementPort = managementPort > 0 && managementPort != serverPort;
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/api/auth/logout-all").authenticated()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/public/**").permitAll()
                         .requestMatchers("/api/users/search").permitAll()
+                        // Handshake WebSocket không mang header Authorization, JWT được kiểm tra ở frame CONNECT
+                        .requestMatchers("/ws/**").permitAll()
+                        .requestMatchers(EndpointRequest.to(MetricsEndpoint.class))
+                        .access((authentication, context) -> new AuthorizationDecision(metricsOnManagementPort))
                         .anyRequest().authenticated())
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Chặn brute-force /api/auth/** trước mọi xử lý JWT hay BCrypt
+                .addFilterBefore(authRateLimitFilter, JwtAuthenticationFilter.class);
         
         return http.build();
     }
@@ -4,10 +4,12 @@ import com.todoapp.dto.request.LoginRequest;
 import com.todoapp.dto.request.RegisterRequest;
 import com.todoapp.dto.response.ApiResponse;
 import com.todoapp.dto.response.AuthResponse;
+import com.todoapp.security.UserPrincipal;
 import com.todoapp.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -40,4 +42,16 @@ public class AuthController {
         AuthResponse response = authService.refreshToken(refreshToken);
         return ResponseEntity.ok(ApiResponse.success("Token refreshed", response));
     }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody Map<String, String> request) {
+        authService.logout(request.get("refreshToken"));
+        return ResponseEntity.ok(ApiResponse.success("Logged out", null));
+    }
+    
+    @PostMapping("/logout-all")
+    public ResponseEntity<ApiResponse<Void>> logoutEverywhere(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        authService.logoutEverywhere(userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Logged out from all devices", null));
+    }
 }
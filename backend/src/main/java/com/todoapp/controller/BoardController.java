@@ -1,23 +1,37 @@
 package com.todoapp.controller;
 
+import com.todoapp.dto.request.BoardMemberRequest;
 import com.todoapp.dto.request.BoardRequest;
+import com.todoapp.dto.request.CardFilter;
+import com.todoapp.dto.request.ReorderRequest;
 import com.todoapp.dto.response.ApiResponse;
 import com.todoapp.dto.response.BoardResponse;
+import com.todoapp.dto.response.BoardSummaryPageResponse;
+import com.todoapp.dto.response.ReorderResponse;
 import com.todoapp.security.UserPrincipal;
 import com.todoapp.service.BoardService;
+import com.todoapp.service.BoardStreamingService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -26,6 +40,7 @@ import java.util.List;
 public class BoardController {
     
     private final BoardService boardService;
+    private final BoardStreamingService boardStreamingService;
     
     @GetMapping
     public ResponseEntity<ApiResponse<List<BoardResponse>>> getMyBoards(
@@ -34,12 +49,54 @@ public class BoardController {
         return ResponseEntity.ok(ApiResponse.success(boards));
     }
     
+    @GetMapping("/summaries")
+    public ResponseEntity<ApiResponse<BoardSummaryPageResponse>> getMyBoardSummaries(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        BoardSummaryPageResponse page = boardService.getBoardSummaries(userPrincipal.getId(), cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+    
+    // Có tham số lọc (labels, memberIds, dueFrom, dueTo, completed) thì chỉ trả các card khớp
     @GetMapping("/{boardId}")
     public ResponseEntity<ApiResponse<BoardResponse>> getBoardById(
             @PathVariable String boardId,
-            @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        BoardResponse board = boardService.getBoardById(boardId, userPrincipal.getId());
-        return ResponseEntity.ok(ApiResponse.success(board));
+            CardFilter filter,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            WebRequest webRequest) {
+        BoardService.BoardVersion version = boardService.getBoardVersion(boardId, userPrincipal.getId());
+        String etag = version.etag();
+        // Board không đổi kể từ lần tải trước -> trả 304, không cần dựng lại dữ liệu
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        
+        BoardResponse board = filter.isEmpty()
+                ? boardService.getBoardById(boardId, userPrincipal.getId(), version)
+                : boardService.getFilteredBoard(boardId, userPrincipal.getId(), filter);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(board));
+    }
+    
+    // Board rất lớn: ghi JSON dần theo cursor, không qua snapshot cache và không dựng DTO trong heap
+    @GetMapping(value = "/{boardId}", params = "stream=true")
+    public void streamBoardById(
+            @PathVariable String boardId,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            WebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+        String etag = boardService.getBoardVersion(boardId, userPrincipal.getId()).etag();
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+        
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        boardStreamingService.writeBoard(boardId, userPrincipal.getId(), response.getOutputStream());
     }
     
     @PostMapping
@@ -59,6 +116,15 @@ public class BoardController {
         return ResponseEntity.ok(ApiResponse.success("Board updated", board));
     }
     
+    @PatchMapping("/{boardId}")
+    public ResponseEntity<ApiResponse<BoardResponse>> patchBoard(
+            @PathVariable String boardId,
+            @RequestBody BoardRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        BoardResponse board = boardService.updateBoard(boardId, request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Board updated", board));
+    }
+    
     @PutMapping("/{boardId}/star")
     public ResponseEntity<ApiResponse<BoardResponse>> toggleStar(
             @PathVariable String boardId,
@@ -76,6 +142,15 @@ public class BoardController {
         return ResponseEntity.ok(ApiResponse.success(board));
     }
     
+    @PatchMapping("/{boardId}/list-order")
+    public ResponseEntity<ApiResponse<ReorderResponse>> moveList(
+            @PathVariable String boardId,
+            @Valid @RequestBody ReorderRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        ReorderResponse moved = boardService.moveListAfter(boardId, request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success(moved));
+    }
+    
     @DeleteMapping("/{boardId}")
     public ResponseEntity<ApiResponse<Void>> deleteBoard(
             @PathVariable String boardId,
@@ -83,4 +158,23 @@ public class BoardController {
         boardService.deleteBoard(boardId, userPrincipal.getId());
         return ResponseEntity.ok(ApiResponse.success("Board deleted", null));
     }
+    
+    @PutMapping("/{boardId}/members/{memberId}")
+    public ResponseEntity<ApiResponse<BoardResponse>> setMemberRole(
+            @PathVariable String boardId,
+            @PathVariable String memberId,
+            @Valid @RequestBody BoardMemberRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        BoardResponse board = boardService.setMemberRole(boardId, memberId, request.getRole(), userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Member updated", board));
+    }
+    
+    @DeleteMapping("/{boardId}/members/{memberId}")
+    public ResponseEntity<ApiResponse<BoardResponse>> removeMember(
+            @PathVariable String boardId,
+            @PathVariable String memberId,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        BoardResponse board = boardService.removeMember(boardId, memberId, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Member removed", board));
+    }
 }
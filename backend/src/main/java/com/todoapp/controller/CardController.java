@@ -1,10 +1,13 @@
 package com.todoapp.controller;
 
+import com.todoapp.dto.request.BulkCardRequest;
 import com.todoapp.dto.request.CardRequest;
 import com.todoapp.dto.request.MoveCardRequest;
 import com.todoapp.dto.response.ApiResponse;
+import com.todoapp.dto.response.BulkCardResponse;
 import com.todoapp.dto.response.CardResponse;
 import com.todoapp.security.UserPrincipal;
+import com.todoapp.service.CardBulkService;
 import com.todoapp.service.CardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -25,6 +29,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class CardController {
     
     private final CardService cardService;
+    private final CardBulkService cardBulkService;
     
     @PostMapping("/cards")
     public ResponseEntity<ApiResponse<CardResponse>> createStandaloneCard(
@@ -34,6 +39,15 @@ public class CardController {
         return ResponseEntity.ok(ApiResponse.success("Standalone card created", card));
     }
     
+    // Nhiều thao tác trong một request, kết quả trả về theo từng thao tác
+    @PostMapping("/cards/bulk")
+    public ResponseEntity<ApiResponse<BulkCardResponse>> applyBulk(
+            @Valid @RequestBody BulkCardRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        BulkCardResponse response = cardBulkService.applyBulk(request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @PostMapping("/lists/{listId}/cards")
     public ResponseEntity<ApiResponse<CardResponse>> createCard(
             @PathVariable String listId,
@@ -60,6 +74,16 @@ public class CardController {
         return ResponseEntity.ok(ApiResponse.success("Card updated", card));
     }
     
+    // Chỉ gửi các field cần đổi; title có thể bỏ trống
+    @PatchMapping("/cards/{cardId}")
+    public ResponseEntity<ApiResponse<CardResponse>> patchCard(
+            @PathVariable String cardId,
+            @RequestBody CardRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        CardResponse card = cardService.updateCard(cardId, request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Card updated", card));
+    }
+    
     @PutMapping("/cards/{cardId}/move")
     public ResponseEntity<ApiResponse<CardResponse>> moveCard(
             @PathVariable String cardId,
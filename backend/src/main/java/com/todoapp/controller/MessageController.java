@@ -1,17 +1,21 @@
 package com.todoapp.controller;
 
+import com.todoapp.dto.request.MarkReadRequest;
 import com.todoapp.dto.request.MessageRequest;
 import com.todoapp.dto.response.ApiResponse;
 import com.todoapp.dto.response.ConversationResponse;
+import com.todoapp.dto.response.MessagePageResponse;
 import com.todoapp.dto.response.MessageResponse;
 import com.todoapp.security.UserPrincipal;
 import com.todoapp.service.MessageService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.List;
 
@@ -20,6 +24,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MessageController {
     
+    private static final String DEPRECATION = "Deprecation";
+    private static final String HAS_MORE = "X-Has-More";
+    
     private final MessageService messageService;
     
     @PostMapping("/send")
@@ -31,12 +38,38 @@ public class MessageController {
                 .body(new ApiResponse<>(true, "Message sent successfully", response));
     }
     
+    // Đã thay bằng /history. Body giữ nguyên dạng cũ (tối đa 100 tin mới nhất); khi còn tin cũ hơn,
+    // X-Has-More và Link rel="next" chỉ tới trang /history kế tiếp để client biết danh sách bị cắt
+    @Deprecated
     @GetMapping("/conversation/{otherUserId}")
     public ResponseEntity<ApiResponse<List<MessageResponse>>> getConversation(
             @PathVariable String otherUserId,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        List<MessageResponse> messages = messageService.getConversation(userPrincipal.getId(), otherUserId);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Conversation retrieved successfully", messages));
+        MessagePageResponse page = messageService.getConversation(userPrincipal.getId(), otherUserId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(DEPRECATION, "true")
+                .header(HAS_MORE, String.valueOf(page.getHasMore()));
+        if (Boolean.TRUE.equals(page.getHasMore())) {
+            String next = UriComponentsBuilder.fromPath("/api/messages/conversation/{otherUserId}/history")
+                    .queryParam("before", page.getBeforeCursor())
+                    .buildAndExpand(otherUserId)
+                    .encode()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(new ApiResponse<>(true, "Conversation retrieved successfully", page.getMessages()));
+    }
+    
+    @GetMapping("/conversation/{otherUserId}/history")
+    public ResponseEntity<ApiResponse<MessagePageResponse>> getConversationPage(
+            @PathVariable String otherUserId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        MessagePageResponse page = messageService.getConversationPage(
+                userPrincipal.getId(), otherUserId, before, after, limit);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Conversation retrieved successfully", page));
     }
     
     @PutMapping("/{messageId}/read")
@@ -47,18 +80,28 @@ public class MessageController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Message marked as read", null));
     }
     
+    @PutMapping("/read")
+    public ResponseEntity<ApiResponse<Long>> markMessagesAsRead(
+            @Valid @RequestBody MarkReadRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        long marked = messageService.markAsRead(request.getMessageIds(), userPrincipal.getId());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Messages marked as read", marked));
+    }
+    
     @PutMapping("/conversation/{otherUserId}/read")
-    public ResponseEntity<ApiResponse<Void>> markConversationAsRead(
+    public ResponseEntity<ApiResponse<Long>> markConversationAsRead(
             @PathVariable String otherUserId,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        messageService.markConversationAsRead(userPrincipal.getId(), otherUserId);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Conversation marked as read", null));
+        long marked = messageService.markConversationAsRead(userPrincipal.getId(), otherUserId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Conversation marked as read", marked));
     }
     
     @GetMapping("/conversations")
     public ResponseEntity<ApiResponse<List<ConversationResponse>>> getConversations(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        List<ConversationResponse> conversations = messageService.getConversations(userPrincipal.getId());
+        List<ConversationResponse> conversations = messageService.getConversations(userPrincipal.getId(), page, size);
         return ResponseEntity.ok(new ApiResponse<>(true, "Conversations retrieved successfully", conversations));
     }
     
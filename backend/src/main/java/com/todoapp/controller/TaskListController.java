@@ -1,7 +1,9 @@
 package com.todoapp.controller;
 
+import com.todoapp.dto.request.ReorderRequest;
 import com.todoapp.dto.request.TaskListRequest;
 import com.todoapp.dto.response.ApiResponse;
+import com.todoapp.dto.response.ReorderResponse;
 import com.todoapp.dto.response.TaskListResponse;
 import com.todoapp.security.UserPrincipal;
 import com.todoapp.service.TaskListService;
@@ -11,11 +13,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -39,8 +43,10 @@ public class TaskListController {
     @GetMapping("/lists/{listId}")
     public ResponseEntity<ApiResponse<TaskListResponse>> getListWithCards(
             @PathVariable String listId,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
-        TaskListResponse list = taskListService.getListWithCards(listId, userPrincipal.getId());
+        TaskListResponse list = taskListService.getListWithCards(listId, offset, limit, userPrincipal.getId());
         return ResponseEntity.ok(ApiResponse.success(list));
     }
     
@@ -53,6 +59,15 @@ public class TaskListController {
         return ResponseEntity.ok(ApiResponse.success("List updated", list));
     }
     
+    @PatchMapping("/lists/{listId}")
+    public ResponseEntity<ApiResponse<TaskListResponse>> patchList(
+            @PathVariable String listId,
+            @RequestBody TaskListRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        TaskListResponse list = taskListService.updateList(listId, request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("List updated", list));
+    }
+    
     @PutMapping("/lists/{listId}/card-order")
     public ResponseEntity<ApiResponse<TaskListResponse>> updateCardOrder(
             @PathVariable String listId,
@@ -62,6 +77,15 @@ public class TaskListController {
         return ResponseEntity.ok(ApiResponse.success(list));
     }
     
+    @PatchMapping("/lists/{listId}/card-order")
+    public ResponseEntity<ApiResponse<ReorderResponse>> moveCardInList(
+            @PathVariable String listId,
+            @Valid @RequestBody ReorderRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        ReorderResponse moved = taskListService.moveCardAfter(listId, request, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success(moved));
+    }
+    
     @DeleteMapping("/lists/{listId}")
     public ResponseEntity<ApiResponse<Void>> deleteList(
             @PathVariable String listId,
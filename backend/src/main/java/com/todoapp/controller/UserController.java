@@ -39,4 +39,11 @@ public class UserController {
         UserResponse user = userService.getUserById(userPrincipal.getId());
         return ResponseEntity.ok(new ApiResponse<>(true, "Current user", user));
     }
+    
+    @DeleteMapping("/me")
+    public ResponseEntity<ApiResponse<Void>> deactivateCurrentUser(
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        userService.deactivateAccount(userPrincipal.getId());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Account deactivated", null));
+    }
 }
@@ -0,0 +1,12 @@
+package com.todoapp.dto.request;
+
+import com.todoapp.model.BoardRole;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BoardMemberRequest {
+    
+    @NotNull(message = "Role is required")
+    private BoardRole role;
+}
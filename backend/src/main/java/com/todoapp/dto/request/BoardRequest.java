@@ -12,4 +12,7 @@ public class BoardRequest {
     private String description;
     
     private String background;
+    
+    // Version đã đọc được; khác null thì chỉ ghi khi bản ghi chưa bị sửa kể từ đó
+    private Long version;
 }
@@ -0,0 +1,24 @@
+package com.todoapp.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BulkCardOperation {
+    
+    public enum Type {
+        CREATE, UPDATE, MOVE, DELETE
+    }
+    
+    @NotNull(message = "Operation type is required")
+    private Type type;
+    
+    // UPDATE, MOVE, DELETE
+    private String cardId;
+    
+    // CREATE: list chứa card mới; MOVE: list đích (card được đưa xuống cuối list)
+    private String listId;
+    
+    // CREATE, UPDATE: chỉ ghi các field khác null, CREATE bắt buộc có title
+    private CardRequest card;
+}
@@ -0,0 +1,17 @@
+package com.todoapp.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkCardRequest {
+    
+    @NotEmpty(message = "Operations are required")
+    @Size(max = 500, message = "At most 500 operations per request")
+    @Valid
+    private List<BulkCardOperation> operations;
+}
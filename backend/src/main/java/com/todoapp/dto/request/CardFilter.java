@@ -0,0 +1,34 @@
+package com.todoapp.dto.request;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Tham số lọc card khi mở board (query string), các điều kiện được AND với nhau
+@Data
+public class CardFilter {
+    
+    // Card có ít nhất một trong các nhãn này
+    private List<String> labels;
+    
+    // Card được giao cho ít nhất một trong các thành viên này
+    private List<String> memberIds;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueFrom;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueTo;
+    
+    private Boolean completed;
+    
+    public boolean isEmpty() {
+        return (labels == null || labels.isEmpty())
+                && (memberIds == null || memberIds.isEmpty())
+                && dueFrom == null
+                && dueTo == null
+                && completed == null;
+    }
+}
@@ -27,4 +27,7 @@ public class CardRequest {
     
     @JsonProperty("completed")
     private Boolean isCompleted;
+    
+    // Version đã đọc được; khác null thì chỉ ghi khi bản ghi chưa bị sửa kể từ đó
+    private Long version;
 }
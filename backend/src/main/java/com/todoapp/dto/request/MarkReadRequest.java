@@ -0,0 +1,15 @@
+package com.todoapp.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MarkReadRequest {
+    
+    @NotEmpty(message = "Message IDs are required")
+    @Size(max = 500, message = "At most 500 messages can be marked at once")
+    private List<String> messageIds;
+}
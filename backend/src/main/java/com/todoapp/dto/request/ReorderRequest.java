@@ -0,0 +1,20 @@
+package com.todoapp.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ReorderRequest {
+    
+    // Card (hoặc list) được kéo
+    @NotBlank(message = "ID is required")
+    private String id;
+    
+    // Đặt ngay sau phần tử này; null nghĩa là đưa lên đầu
+    private String afterId;
+    
+    // Seq của board mà client đang hiển thị, lệch với server thì bị từ chối
+    @NotNull(message = "Base seq is required")
+    private Long baseSeq;
+}
@@ -8,4 +8,7 @@ public class TaskListRequest {
     
     @NotBlank(message = "Title is required")
     private String title;
+    
+    // Version đã đọc được; khác null thì chỉ ghi khi bản ghi chưa bị sửa kể từ đó
+    private Long version;
 }
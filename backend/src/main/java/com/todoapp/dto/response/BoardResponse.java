@@ -1,6 +1,7 @@
 package com.todoapp.dto.response;
 
 import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,9 +9,10 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class BoardResponse {
@@ -20,28 +22,35 @@ public class BoardResponse {
     private String description;
     private String background;
     private String ownerId;
+    private Map<String, BoardRole> memberRoles;
     private Boolean isStarred;
     private List<String> listOrderIds;
     private List<TaskListResponse> lists;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
+    private Long seq;
     
-    public static BoardResponse fromEntity(Board board) {
+    // isStarred tính theo người xem vì mỗi thành viên gắn sao riêng
+    public static BoardResponse fromEntity(Board board, String userId) {
         return BoardResponse.builder()
                 .id(board.getId())
                 .title(board.getTitle())
                 .description(board.getDescription())
                 .background(board.getBackground())
                 .ownerId(board.getOwnerId())
-                .isStarred(board.getIsStarred())
+                .memberRoles(board.getMemberRoles())
+                .isStarred(board.getStarredBy() != null && board.getStarredBy().contains(userId))
                 .listOrderIds(board.getListOrderIds())
                 .createdAt(board.getCreatedAt())
                 .updatedAt(board.getUpdatedAt())
+                .version(board.getVersion())
+                .seq(board.getSeq())
                 .build();
     }
     
-    public static BoardResponse fromEntityWithLists(Board board, List<TaskListResponse> lists) {
-        BoardResponse response = fromEntity(board);
+    public static BoardResponse fromEntityWithLists(Board board, String userId, List<TaskListResponse> lists) {
+        BoardResponse response = fromEntity(board, userId);
         response.setLists(lists);
         return response;
     }
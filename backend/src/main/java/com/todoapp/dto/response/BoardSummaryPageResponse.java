@@ -0,0 +1,20 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BoardSummaryPageResponse {
+    
+    // Board gắn sao trước, sau đó theo updatedAt giảm dần
+    private List<BoardSummaryResponse> boards;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,42 @@
+package com.todoapp.dto.response;
+
+import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Bản rút gọn cho trang chủ: không có listOrderIds hay danh sách thành viên
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BoardSummaryResponse {
+    
+    private String id;
+    private String title;
+    private String background;
+    private Boolean isStarred;
+    private BoardRole role;
+    private Long listCount;
+    private Long cardCount;
+    private Long completedCardCount;
+    private LocalDateTime updatedAt;
+    
+    public static BoardSummaryResponse fromEntity(Board board, String userId) {
+        return BoardSummaryResponse.builder()
+                .id(board.getId())
+                .title(board.getTitle())
+                .background(board.getBackground())
+                .isStarred(board.getStarredBy() != null && board.getStarredBy().contains(userId))
+                .role(userId.equals(board.getOwnerId()) ? BoardRole.OWNER : board.getMemberRoles().get(userId))
+                .listCount(board.getListCount())
+                .cardCount(board.getCardCount())
+                .completedCardCount(board.getCompletedCardCount())
+                .updatedAt(board.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCardResponse {
+    
+    // Cùng thứ tự với operations trong request
+    private List<BulkCardResult> results;
+    private Integer succeeded;
+    private Integer failed;
+}
@@ -0,0 +1,36 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCardResult {
+    
+    // Vị trí của thao tác trong request
+    private Integer index;
+    private String cardId;
+    private Boolean success;
+    private String message;
+    
+    public static BulkCardResult success(int index, String cardId) {
+        return BulkCardResult.builder()
+                .index(index)
+                .cardId(cardId)
+                .success(true)
+                .build();
+    }
+    
+    public static BulkCardResult failure(int index, String cardId, String message) {
+        return BulkCardResult.builder()
+                .index(index)
+                .cardId(cardId)
+                .success(false)
+                .message(message)
+                .build();
+    }
+}
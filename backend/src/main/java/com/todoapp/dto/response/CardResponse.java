@@ -22,6 +22,7 @@ public class CardResponse {
     private String cover;
     private String boardId;
     private String listId;
+    private String rank;
     private List<String> memberIds;
     private List<String> labels;
     private LocalDateTime startDate;
@@ -30,6 +31,9 @@ public class CardResponse {
     private Boolean isCompleted;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Integer position;
+    private Long version;
+    private Long seq;
     
     public static CardResponse fromEntity(Card card) {
         return CardResponse.builder()
@@ -39,6 +43,7 @@ public class CardResponse {
                 .cover(card.getCover())
                 .boardId(card.getBoardId())
                 .listId(card.getListId())
+                .rank(card.getRank())
                 .memberIds(card.getMemberIds())
                 .labels(card.getLabels())
                 .startDate(card.getStartDate())
@@ -46,6 +51,7 @@ public class CardResponse {
                 .isCompleted(card.getIsCompleted())
                 .createdAt(card.getCreatedAt())
                 .updatedAt(card.getUpdatedAt())
+                .version(card.getVersion())
                 .build();
     }
 }
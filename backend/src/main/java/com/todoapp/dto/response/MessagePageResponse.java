@@ -0,0 +1,21 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePageResponse {
+    
+    // Tin nhắn theo thời gian tăng dần
+    private List<MessageResponse> messages;
+    private String beforeCursor;
+    private String afterCursor;
+    private Boolean hasMore;
+}
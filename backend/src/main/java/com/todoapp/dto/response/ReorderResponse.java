@@ -0,0 +1,19 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderResponse {
+    
+    private String id;
+    private String afterId;
+    private Integer position;
+    // Seq mới của board; khi bị từ chối vì base cũ thì là seq hiện tại
+    private Long seq;
+}
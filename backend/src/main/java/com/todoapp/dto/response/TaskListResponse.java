@@ -18,19 +18,28 @@ public class TaskListResponse {
     private String id;
     private String title;
     private String boardId;
+    private String rank;
     private List<String> cardOrderIds;
     private List<CardResponse> cards;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
+    // Seq của board ứng với thay đổi vừa thực hiện, chỉ có trong phản hồi của thao tác ghi
+    private Long seq;
+    // Khi đọc list theo trang: tổng số card và offset của trang kế tiếp (null nếu đã hết)
+    private Long cardCount;
+    private Integer nextOffset;
     
     public static TaskListResponse fromEntity(TaskList taskList) {
         return TaskListResponse.builder()
                 .id(taskList.getId())
                 .title(taskList.getTitle())
                 .boardId(taskList.getBoardId())
+                .rank(taskList.getRank())
                 .cardOrderIds(taskList.getCardOrderIds())
                 .createdAt(taskList.getCreatedAt())
                 .updatedAt(taskList.getUpdatedAt())
+                .version(taskList.getVersion())
                 .build();
     }
     
@@ -0,0 +1,18 @@
+package com.todoapp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountResponse {
+    
+    // Người chat của hội thoại vừa thay đổi
+    private String userId;
+    private Long conversationUnread;
+    private Long totalUnread;
+}
@@ -0,0 +1,16 @@
+package com.todoapp.exception;
+
+// Ghi đè theo version thất bại: trả kèm trạng thái hiện tại để client gộp lại thay đổi
+public class VersionConflictException extends ConflictException {
+    
+    private final Object current;
+    
+    public VersionConflictException(String message, Object current) {
+        super(message);
+        this.current = current;
+    }
+    
+    public Object getCurrent() {
+        return current;
+    }
+}
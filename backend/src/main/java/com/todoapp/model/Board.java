@@ -7,17 +7,28 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "boards")
+// Danh sách board ở trang chủ, phân trang bằng keyset: phần gắn sao đọc theo starredBy, phần còn lại theo memberIds.
+// Hai field đều là mảng nên không gộp chung một index (giới hạn multikey)
+@CompoundIndexes({
+        @CompoundIndex(name = "member_updated_idx", def = "{'memberIds': 1, 'updatedAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "starred_updated_idx", def = "{'starredBy': 1, 'updatedAt': -1, '_id': -1}")
+})
 public class Board {
     
     @Id
@@ -31,12 +42,44 @@ public class Board {
     
     private String ownerId;
     
+    // Mọi user có quyền trên board (kể cả owner), để "board tôi xem được" là một truy vấn theo index
+    @Indexed
     @Builder.Default
-    private Boolean isStarred = false;
+    private List<String> memberIds = new ArrayList<>();
+    
+    // userId -> vai trò; tra quyền O(1) cho từng request
+    @Builder.Default
+    private Map<String, BoardRole> memberRoles = new HashMap<>();
+    
+    // Gắn sao là lựa chọn riêng của từng thành viên: userId của những người đã gắn sao board
+    @Builder.Default
+    private List<String> starredBy = new ArrayList<>();
     
     @Builder.Default
     private List<String> listOrderIds = new ArrayList<>();
     
+    // Bộ đếm được cập nhật bằng $inc khi thêm/xóa list, card; không phải đếm lại khi hiển thị
+    @Builder.Default
+    private Long listCount = 0L;
+    
+    @Builder.Default
+    private Long cardCount = 0L;
+    
+    @Builder.Default
+    private Long completedCardCount = 0L;
+    
+    // Đã xóa nhưng dữ liệu con chưa được DeletionReaper dọn; mọi truy vấn đọc bỏ qua board này
+    @Indexed(sparse = true)
+    private LocalDateTime deletedAt;
+    
+    // Tăng khi sửa title/description/background; bộ đếm, thành viên, gắn sao không tính
+    @Builder.Default
+    private Long version = 0L;
+    
+    // Số thứ tự của thay đổi cấu trúc gần nhất (thêm/xóa/sắp xếp list, card), do BoardMutationSequencer cấp
+    @Builder.Default
+    private Long seq = 0L;
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
@@ -0,0 +1,23 @@
+package com.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "board_revisions")
+public class BoardRevision {
+    
+    // Trùng với id của board
+    @Id
+    private String id;
+    
+    @Builder.Default
+    private Long revision = 0L;
+}
@@ -0,0 +1,12 @@
+package com.todoapp.model;
+
+// Sắp theo quyền tăng dần: vai trò sau có mọi quyền của vai trò trước
+public enum BoardRole {
+    VIEWER,  // Chỉ xem board, list, card
+    EDITOR,  // Thêm / sửa / di chuyển list và card
+    OWNER;   // Xóa board, quản lý thành viên
+    
+    public boolean allows(BoardRole required) {
+        return compareTo(required) >= 0;
+    }
+}
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -18,6 +20,15 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "cards")
+@CompoundIndexes({
+        @CompoundIndex(name = "board_list_idx", def = "{'boardId': 1, 'listId': 1}"),
+        @CompoundIndex(name = "list_rank_idx", def = "{'listId': 1, 'rank': 1}"),
+        // Lọc card khi mở board: mỗi index chỉ chứa một field mảng (labels, memberIds) vì giới hạn multikey,
+        // trạng thái và hạn chót theo thứ tự bằng trước, khoảng sau
+        @CompoundIndex(name = "board_labels_idx", def = "{'boardId': 1, 'labels': 1}"),
+        @CompoundIndex(name = "board_members_due_idx", def = "{'boardId': 1, 'memberIds': 1, 'dueDate': 1}"),
+        @CompoundIndex(name = "board_completed_due_idx", def = "{'boardId': 1, 'isCompleted': 1, 'dueDate': 1}")
+})
 public class Card {
     
     @Id
@@ -33,6 +44,8 @@ public class Card {
     
     private String listId;
     
+    private String rank;
+    
     @Builder.Default
     private List<String> memberIds = new ArrayList<>();
     
@@ -46,6 +59,10 @@ public class Card {
     @Builder.Default
     private Boolean isCompleted = false;
     
+    // Tăng mỗi lần sửa nội dung card (PUT/PATCH, bulk); di chuyển và đổi rank không làm tăng
+    @Builder.Default
+    private Long version = 0L;
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
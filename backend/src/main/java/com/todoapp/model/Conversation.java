@@ -0,0 +1,81 @@
+package com.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bản tóm tắt hội thoại cho trang Inbox, cập nhật mỗi khi có tin nhắn mới / đọc / xóa
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "conversations")
+@CompoundIndex(name = "participant_last_message_idx", def = "{'participantIds': 1, 'lastMessageAt': -1}")
+public class Conversation {
+    
+    // Trùng với Message.conversationKey
+    @Id
+    private String id;
+    
+    @Builder.Default
+    private List<String> participantIds = new ArrayList<>();
+    
+    private LastMessage lastMessage;
+    
+    private LocalDateTime lastMessageAt;
+    
+    // Số tin chưa đọc theo từng người tham gia
+    @Builder.Default
+    private Map<String, Long> unreadCounts = new HashMap<>();
+    
+    // Bản sao gọn của tin cuối; không nhúng thẳng Message để index của messages không bị tạo lại trên collection này
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LastMessage {
+        
+        private String id;
+        private String senderId;
+        private String receiverId;
+        private String content;
+        private Message.MessageType type;
+        private String cardId;
+        private LocalDateTime createdAt;
+        
+        public static LastMessage from(Message message) {
+            return LastMessage.builder()
+                    .id(message.getId())
+                    .senderId(message.getSenderId())
+                    .receiverId(message.getReceiverId())
+                    .content(message.getContent())
+                    .type(message.getType())
+                    .cardId(message.getCardId())
+                    .createdAt(message.getCreatedAt())
+                    .build();
+        }
+        
+        public Message toMessage(boolean isRead) {
+            return Message.builder()
+                    .id(id)
+                    .senderId(senderId)
+                    .receiverId(receiverId)
+                    .content(content)
+                    .type(type)
+                    .cardId(cardId)
+                    .isRead(isRead)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -16,6 +18,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "messages")
+@CompoundIndexes({
+        @CompoundIndex(name = "conversation_created_idx", def = "{'conversationKey': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "receiver_unread_idx", def = "{'receiverId': 1, 'isRead': 1}")
+})
 public class Message {
     
     @Id
@@ -25,6 +31,9 @@ public class Message {
     
     private String receiverId;
     
+    // Khóa chung của cặp người dùng, không phụ thuộc ai gửi ai nhận
+    private String conversationKey;
+    
     private String content;
     
     @Builder.Default
@@ -41,6 +50,12 @@ public class Message {
     @LastModifiedDate
     private LocalDateTime updatedAt;
     
+    public static String conversationKeyOf(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0
+                ? userId1 + ":" + userId2
+                : userId2 + ":" + userId1;
+    }
+    
     public enum MessageType {
         TEXT,    // Tin nhắn văn bản thường
         CARD     // Tin nhắn gửi kèm card/task
@@ -0,0 +1,6 @@
+package com.todoapp.model;
+
+public enum OrderingMode {
+    ARRAY,  // Thứ tự lưu trong Board.listOrderIds / TaskList.cardOrderIds
+    RANK    // Thứ tự theo khóa rank trên từng card / list
+}
@@ -0,0 +1,41 @@
+package com.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Mỗi refresh token đã phát; các token xoay vòng từ cùng một lần đăng nhập chung familyId
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "refresh_tokens")
+public class RefreshToken {
+    
+    // Trùng với claim jti trong token
+    @Id
+    private String id;
+    
+    @Indexed
+    private String familyId;
+    
+    private String userId;
+    
+    // Thời điểm token đã được đổi lấy token mới; dùng lại token đã đổi = bị đánh cắp
+    private LocalDateTime usedAt;
+    
+    @Builder.Default
+    private Boolean revoked = false;
+    
+    private LocalDateTime createdAt;
+    
+    // Mongo tự xóa bản ghi khi token hết hạn
+    @Indexed(expireAfterSeconds = 0)
+    private LocalDateTime expiresAt;
+}
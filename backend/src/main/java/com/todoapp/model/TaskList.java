@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -18,6 +20,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "lists")
+@CompoundIndex(name = "board_rank_idx", def = "{'boardId': 1, 'rank': 1}")
 public class TaskList {
     
     @Id
@@ -27,9 +30,19 @@ public class TaskList {
     
     private String boardId;
     
+    private String rank;
+    
     @Builder.Default
     private List<String> cardOrderIds = new ArrayList<>();
     
+    // Đã xóa nhưng card bên trong chưa được DeletionReaper dọn
+    @Indexed(sparse = true)
+    private LocalDateTime deletedAt;
+    
+    // Tăng khi đổi title, chỉ để so khớp khi ghi; thay đổi cardOrderIds không tính
+    @Builder.Default
+    private Long version = 0L;
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
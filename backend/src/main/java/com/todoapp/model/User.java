@@ -30,13 +30,20 @@ public class User {
     private String displayName;
     
     private String avatar;
-
+    
     @Builder.Default
     private Boolean isPremium = false;
     
     @Builder.Default
     private Boolean isActive = true;
     
+    // Tăng mỗi khi thu hồi toàn bộ token của user; token mang epoch cũ hơn sẽ bị từ chối
+    @Builder.Default
+    private Long tokenEpoch = 0L;
+    
+    @Indexed(sparse = true)
+    private LocalDateTime tokenEpochUpdatedAt;
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
@@ -2,14 +2,22 @@ package com.todoapp.repository;
 
 import com.todoapp.model.Board;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BoardRepository extends MongoRepository<Board, String> {
+public interface BoardRepository extends MongoRepository<Board, String>, BoardRepositoryCustom {
     
     List<Board> findByOwnerId(String ownerId);
     
-    List<Board> findByOwnerIdAndIsStarred(String ownerId, Boolean isStarred);
+    // Board của mình và board được chia sẻ, dùng index memberIds
+    List<Board> findByMemberIdsAndDeletedAtIsNull(String userId);
+    
+    boolean existsByIdAndStarredBy(String id, String userId);
+    
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'seq': 1 }")
+    Optional<Board> findSeqById(String id);
 }
@@ -0,0 +1,44 @@
+package com.todoapp.repository;
+
+import com.todoapp.dto.response.BoardResponse;
+import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
+import com.todoapp.model.OrderingMode;
+import com.todoapp.util.BoardCursor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface BoardRepositoryCustom {
+    
+    Optional<BoardResponse> findBoardTree(String boardId, OrderingMode mode);
+    
+    Optional<Board> findAccessById(String boardId);
+    
+    void setMemberRole(String boardId, String userId, BoardRole role);
+    
+    boolean removeMember(String boardId, String userId);
+    
+    long backfillMembers();
+    
+    long backfillStars();
+    
+    List<Board> findSummaryPage(String userId, boolean starred, BoardCursor after, int limit);
+    
+    boolean incrementCounts(String boardId, long lists, long cards, long completedCards);
+    
+    long backfillCounts();
+    
+    Optional<Board> patch(String boardId, Map<String, Object> changes, Long expectedVersion);
+    
+    Optional<Board> toggleStar(String boardId, String userId);
+    
+    boolean markDeleted(String boardId);
+    
+    List<String> findDeletedIds(int limit);
+    
+    void applyListOrderChanges(String boardId, List<String> replacement, List<String> removals, List<String> additions);
+    
+    long advanceSeq(String boardId, int count);
+}
@@ -0,0 +1,347 @@
+package com.todoapp.repository;
+
+import com.todoapp.dto.response.BoardResponse;
+import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
+import com.todoapp.model.OrderingMode;
+import com.todoapp.model.TaskList;
+import com.todoapp.util.BoardCursor;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class BoardRepositoryCustomImpl implements BoardRepositoryCustom {
+    
+    // Phần tử không có trong mảng thứ tự sẽ được xếp cuối
+    private static final int UNORDERED_POSITION = Integer.MAX_VALUE;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Optional<BoardResponse> findBoardTree(String boardId, OrderingMode mode) {
+        if (!ObjectId.isValid(boardId)) {
+            return Optional.empty();
+        }
+        
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where("_id").is(new ObjectId(boardId)).and("deletedAt").is(null)));
+        stages.add(stage(listsLookup(boardId, mode)));
+        if (mode == OrderingMode.RANK) {
+            // Giữ listOrderIds trong response cho client cũ, tính lại từ thứ tự rank
+            stages.add(stage(new Document("$addFields", new Document("listOrderIds", idsOf("$lists")))));
+        }
+        // starredBy là dữ liệu riêng của từng người, không nằm trong snapshot dùng chung
+        stages.add(stage(new Document("$unset", List.of("_class", "memberIds", "starredBy"))));
+        Aggregation aggregation = Aggregation.newAggregation(stages);
+        
+        BoardResponse board = mongoTemplate.aggregate(aggregation, "boards", BoardResponse.class)
+                .getUniqueMappedResult();
+        return Optional.ofNullable(board);
+    }
+    
+    @Override
+    public Optional<Board> findAccessById(String boardId) {
+        Query query = Query.query(Criteria.where("id").is(boardId).and("deletedAt").is(null));
+        query.fields().include("ownerId", "memberRoles");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Board.class));
+    }
+    
+    @Override
+    public void setMemberRole(String boardId, String userId, BoardRole role) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(boardId)),
+                new Update().set("memberRoles." + userId, role)
+                        .addToSet("memberIds", userId)
+                        .currentDate("updatedAt"),
+                Board.class);
+    }
+    
+    // false nếu user đã không còn là thành viên, để bên gọi không phải làm mới cache
+    @Override
+    public boolean removeMember(String boardId, String userId) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(boardId).and("memberIds").is(userId)),
+                new Update().unset("memberRoles." + userId)
+                        .pull("memberIds", userId)
+                        .pull("starredBy", userId)
+                        .currentDate("updatedAt"),
+                Board.class).getModifiedCount() > 0;
+    }
+    
+    // Board tạo trước khi có chia sẻ: owner trở thành thành viên đầu tiên
+    @Override
+    public long backfillMembers() {
+        Query query = Query.query(Criteria.where("memberIds").exists(false));
+        query.fields().include("ownerId");
+        List<Board> boards = mongoTemplate.find(query, Board.class);
+        if (boards.isEmpty()) {
+            return 0;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Board.class);
+        for (Board board : boards) {
+            bulk.updateOne(Query.query(Criteria.where("id").is(board.getId())),
+                    new Update().set("memberIds", List.of(board.getOwnerId()))
+                            .set("memberRoles." + board.getOwnerId(), BoardRole.OWNER));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+    
+    // Một phần (gắn sao hoặc không) của danh sách trang chủ, chỉ lấy các field cần hiển thị
+    @Override
+    public List<Board> findSummaryPage(String userId, boolean starred, BoardCursor after, int limit) {
+        // Phần gắn sao đi theo index starredBy (vẫn phải còn là thành viên); phần còn lại theo memberIds
+        Criteria criteria = starred
+                ? Criteria.where("starredBy").is(userId).and("memberIds").is(userId)
+                : Criteria.where("memberIds").is(userId).and("starredBy").ne(userId);
+        criteria.and("deletedAt").is(null);
+        if (after != null) {
+            criteria.orOperator(
+                    Criteria.where("updatedAt").lt(after.updatedAt()),
+                    Criteria.where("updatedAt").is(after.updatedAt()).and("id").lt(idValue(after.id())));
+        }
+        
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "updatedAt", "id"))
+                .limit(limit);
+        query.fields().include("title", "background", "starredBy", "ownerId", "memberRoles." + userId,
+                "listCount", "cardCount", "completedCardCount", "updatedAt");
+        return mongoTemplate.find(query, Board.class);
+    }
+    
+    // false nếu board đã bị xóa (hoặc không tồn tại), để thao tác tạo mới biết mà hoàn tác
+    @Override
+    public boolean incrementCounts(String boardId, long lists, long cards, long completedCards) {
+        Update update = new Update();
+        if (lists != 0) {
+            update.inc("listCount", lists);
+        }
+        if (cards != 0) {
+            update.inc("cardCount", cards);
+        }
+        if (completedCards != 0) {
+            update.inc("completedCardCount", completedCards);
+        }
+        if (update.getUpdateObject().isEmpty()) {
+            return true;
+        }
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(boardId).and("deletedAt").is(null)),
+                update, Board.class).getMatchedCount() > 0;
+    }
+    
+    // Board tạo trước khi có bộ đếm: đếm một lần bằng $group rồi ghi lại hàng loạt
+    @Override
+    public long backfillCounts() {
+        Query query = Query.query(Criteria.where("cardCount").exists(false));
+        query.fields().include("id");
+        List<String> boardIds = mongoTemplate.find(query, Board.class).stream().map(Board::getId).toList();
+        if (boardIds.isEmpty()) {
+            return 0;
+        }
+        
+        Map<String, Document> cardCounts = countByBoard("cards", boardIds, true);
+        Map<String, Document> listCounts = countByBoard("lists", boardIds, false);
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Board.class);
+        for (String boardId : boardIds) {
+            Document cards = cardCounts.getOrDefault(boardId, new Document());
+            Document lists = listCounts.getOrDefault(boardId, new Document());
+            bulk.updateOne(Query.query(Criteria.where("id").is(boardId)),
+                    new Update().set("listCount", countOf(lists, "total"))
+                            .set("cardCount", countOf(cards, "total"))
+                            .set("completedCardCount", countOf(cards, "completed")));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+    
+    @Override
+    public Optional<Board> patch(String boardId, Map<String, Object> changes, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(boardId).and("deletedAt").is(null);
+        return Optional.ofNullable(VersionedPatch.apply(mongoTemplate, Board.class, criteria, changes, expectedVersion));
+    }
+    
+    // Chỉ thêm/bớt userId trong starredBy, không ghi lại cả document nên thành viên, bộ đếm, seq không bị đè.
+    // Không đổi updatedAt: gắn sao của một người không được làm xáo trộn trang chủ của người khác
+    @Override
+    public Optional<Board> toggleStar(String boardId, String userId) {
+        FindAndModifyOptions returnNew = FindAndModifyOptions.options().returnNew(true);
+        Board starred = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(boardId).and("deletedAt").is(null).and("starredBy").ne(userId)),
+                new Update().addToSet("starredBy", userId), returnNew, Board.class);
+        if (starred != null) {
+            return Optional.of(starred);
+        }
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(boardId).and("deletedAt").is(null).and("starredBy").is(userId)),
+                new Update().pull("starredBy", userId), returnNew, Board.class));
+    }
+    
+    // Cờ isStarred cũ dùng chung cho cả board: chuyển thành sao của owner
+    @Override
+    public long backfillStars() {
+        Query query = Query.query(Criteria.where("isStarred").exists(true));
+        query.fields().include("ownerId").include("isStarred");
+        List<Document> boards = mongoTemplate.find(query, Document.class, "boards");
+        if (boards.isEmpty()) {
+            return 0;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Board.class);
+        for (Document board : boards) {
+            Update update = new Update().unset("isStarred");
+            if (Boolean.TRUE.equals(board.getBoolean("isStarred"))) {
+                update.addToSet("starredBy", board.getString("ownerId"));
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(board.get("_id"))), update);
+        }
+        return bulk.execute().getModifiedCount();
+    }
+    
+    // Chỉ đánh dấu, dữ liệu con do DeletionReaper xóa dần ở nền
+    @Override
+    public boolean markDeleted(String boardId) {
+        boolean deleted = mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(boardId).and("deletedAt").is(null)),
+                new Update().currentDate("deletedAt"),
+                Board.class).getModifiedCount() > 0;
+        if (deleted) {
+            // List cũng được đánh dấu, nên mọi instance (kể cả đang cache quyền cũ) đều không thêm được card vào board này
+            mongoTemplate.updateMulti(Query.query(Criteria.where("boardId").is(boardId).and("deletedAt").is(null)),
+                    new Update().currentDate("deletedAt"),
+                    TaskList.class);
+        }
+        return deleted;
+    }
+    
+    @Override
+    public List<String> findDeletedIds(int limit) {
+        return TombstoneQueries.findDeletedIds(mongoTemplate, Board.class, limit);
+    }
+    
+    // Sửa listOrderIds tại chỗ, không cần đọc rồi ghi lại cả board; $pullAll và $push không gộp được
+    // trong cùng một update vì trùng field nên tách thành bulk có thứ tự
+    @Override
+    public void applyListOrderChanges(String boardId, List<String> replacement, List<String> removals, List<String> additions) {
+        Query query = Query.query(Criteria.where("id").is(boardId));
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Board.class);
+        if (replacement != null) {
+            bulk.updateOne(query, new Update().set("listOrderIds", replacement).currentDate("updatedAt"));
+        }
+        if (!removals.isEmpty()) {
+            bulk.updateOne(query, new Update().pullAll("listOrderIds", removals.toArray()).currentDate("updatedAt"));
+        }
+        if (!additions.isEmpty()) {
+            bulk.updateOne(query, new Update().push("listOrderIds").each(additions.toArray()).currentDate("updatedAt"));
+        }
+        bulk.execute();
+    }
+    
+    // Cấp count số thứ tự liên tiếp, trả về số cuối cùng (0 nếu board không còn)
+    @Override
+    public long advanceSeq(String boardId, int count) {
+        Query query = Query.query(Criteria.where("id").is(boardId));
+        query.fields().include("seq");
+        Board board = mongoTemplate.findAndModify(query, new Update().inc("seq", count),
+                FindAndModifyOptions.options().returnNew(true), Board.class);
+        return board != null ? board.getSeq() : 0L;
+    }
+    
+    private Map<String, Document> countByBoard(String collection, List<String> boardIds, boolean withCompleted) {
+        var group = Aggregation.group("boardId").count().as("total");
+        if (withCompleted) {
+            group = group.sum(ConditionalOperators.when(Criteria.where("isCompleted").is(true)).then(1).otherwise(0))
+                    .as("completed");
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("boardId").in(boardIds)), group);
+        
+        Map<String, Document> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            counts.put(row.getString("_id"), row);
+        }
+        return counts;
+    }
+    
+    private static long countOf(Document row, String field) {
+        Number value = row.get(field, Number.class);
+        return value != null ? value.longValue() : 0;
+    }
+    
+    private static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+    
+    private Document listsLookup(String boardId, OrderingMode mode) {
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", new Document("boardId", boardId).append("deletedAt", null)));
+        pipeline.addAll(orderStages("$$listOrder", mode));
+        pipeline.add(new Document("$lookup", cardsLookup(boardId, mode)));
+        if (mode == OrderingMode.RANK) {
+            pipeline.add(new Document("$addFields", new Document("cardOrderIds", idsOf("$cards"))));
+        }
+        pipeline.add(new Document("$unset", List.of("_class", "position")));
+        
+        return new Document("$lookup", new Document("from", "lists")
+                .append("let", new Document("listOrder", "$listOrderIds"))
+                .append("pipeline", pipeline)
+                .append("as", "lists"));
+    }
+    
+    private Document cardsLookup(String boardId, OrderingMode mode) {
+        Document sameList = new Document("$eq", List.of("$listId", "$$listId"));
+        
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", new Document("boardId", boardId).append("$expr", sameList)));
+        pipeline.addAll(orderStages("$$cardOrder", mode));
+        pipeline.add(new Document("$unset", List.of("_class", "position")));
+        
+        return new Document("from", "cards")
+                .append("let", new Document("listId", new Document("$toString", "$_id"))
+                        .append("cardOrder", "$cardOrderIds"))
+                .append("pipeline", pipeline)
+                .append("as", "cards");
+    }
+    
+    private static List<Document> orderStages(String orderVariable, OrderingMode mode) {
+        if (mode == OrderingMode.RANK) {
+            return List.of(new Document("$sort", new Document("rank", 1).append("createdAt", 1)));
+        }
+        return List.of(
+                new Document("$addFields", new Document("position", indexIn(orderVariable))),
+                new Document("$addFields", new Document("position", unorderedLast())),
+                new Document("$sort", new Document("position", 1).append("createdAt", 1))
+        );
+    }
+    
+    private static Document idsOf(String arrayField) {
+        return new Document("$map", new Document("input", arrayField)
+                .append("in", new Document("$toString", "$$this._id")));
+    }
+    
+    private static Document indexIn(String orderVariable) {
+        return new Document("$indexOfArray", List.of(orderVariable, new Document("$toString", "$_id")));
+    }
+    
+    private static Document unorderedLast() {
+        Document missing = new Document("$lt", List.of("$position", 0));
+        return new Document("$cond", List.of(missing, UNORDERED_POSITION, "$position"));
+    }
+    
+    private static AggregationOperation stage(Document document) {
+        return context -> document;
+    }
+}
@@ -0,0 +1,9 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.BoardRevision;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BoardRevisionRepository extends MongoRepository<BoardRevision, String>, BoardRevisionRepositoryCustom {
+}
@@ -0,0 +1,6 @@
+package com.todoapp.repository;
+
+public interface BoardRevisionRepositoryCustom {
+    
+    long increment(String boardId);
+}
@@ -0,0 +1,25 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.BoardRevision;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class BoardRevisionRepositoryCustomImpl implements BoardRevisionRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public long increment(String boardId) {
+        BoardRevision revision = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(boardId)),
+                new Update().inc("revision", 1),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                BoardRevision.class);
+        return revision.getRevision();
+    }
+}
@@ -0,0 +1,41 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Card;
+
+import java.util.Map;
+
+// Một thao tác ghi trong CardRepositoryCustom.applyBulk; expected* là trạng thái card lúc đọc,
+// không còn khớp thì thao tác bị báo lỗi thay vì ghi đè
+public record CardBulkWrite(Type type, String cardId, Card card, Map<String, Object> changes,
+                            String expectedListId, Boolean expectedCompleted, String targetListId, String rank) {
+    
+    public enum Type {
+        INSERT, UPDATE, MOVE, DELETE
+    }
+    
+    public static CardBulkWrite insert(Card card) {
+        return new CardBulkWrite(Type.INSERT, card.getId(), card, null, null, null, null, null);
+    }
+    
+    // expectedCompleted chỉ cần khi changes đổi isCompleted, để bộ đếm completedCardCount tính đúng
+    public static CardBulkWrite update(String cardId, Map<String, Object> changes, Boolean expectedCompleted) {
+        return new CardBulkWrite(Type.UPDATE, cardId, null, changes, null, expectedCompleted, null, null);
+    }
+    
+    // Chỉ đổi listId nếu card vẫn ở list nguồn, giống updateListId
+    public static CardBulkWrite move(String cardId, String expectedListId, String targetListId, String rank) {
+        return new CardBulkWrite(Type.MOVE, cardId, null, null, expectedListId, null, targetListId, rank);
+    }
+    
+    public static CardBulkWrite delete(String cardId, String expectedListId, boolean expectedCompleted) {
+        return new CardBulkWrite(Type.DELETE, cardId, null, null, expectedListId, expectedCompleted, null, null);
+    }
+    
+    // Rank được gán muộn, trong lượt của board
+    public CardBulkWrite withRank(String rank) {
+        if (card != null) {
+            card.setRank(rank);
+        }
+        return new CardBulkWrite(type, cardId, card, changes, expectedListId, expectedCompleted, targetListId, rank);
+    }
+}
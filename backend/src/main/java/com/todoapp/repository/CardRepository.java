@@ -2,18 +2,53 @@ package com.todoapp.repository;
 
 import com.todoapp.model.Card;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CardRepository extends MongoRepository<Card, String> {
+public interface CardRepository extends MongoRepository<Card, String>, CardRepositoryCustom {
     
     List<Card> findByListId(String listId);
     
     List<Card> findByBoardId(String boardId);
     
-    void deleteByListId(String listId);
+    Optional<Card> findFirstByListIdOrderByRankDesc(String listId);
+    
+    long countByListIdAndIdNot(String listId, String id);
+    
+    long countByListIdAndIdNotAndRankLessThan(String listId, String id, String rank);
+    
+    @Query(value = "{ 'listId': ?0 }", fields = "{ 'rank': 1, 'createdAt': 1 }")
+    List<Card> findRanksByListId(String listId);
+    
+    // Chỉ các field cần để kiểm tra quyền trước khi ghi
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'boardId': 1, 'listId': 1 }")
+    Optional<Card> findRefById(String id);
+    
+    List<Card> findByListIdAndIdIn(String listId, Collection<String> ids);
+    
+    // Các Stream dưới đây đọc theo cursor của Mongo, phải đóng sau khi dùng
+    Stream<Card> findByListIdAndIdNotInOrderByCreatedAtAsc(String listId, Collection<String> ids);
+    
+    @Query(value = "{ 'listId': ?0 }", sort = "{ 'rank': 1, 'createdAt': 1 }")
+    Stream<Card> streamByListIdInRankOrder(String listId);
+    
+    @Query(value = "{ 'listId': ?0 }", fields = "{ '_id': 1 }", sort = "{ 'rank': 1, 'createdAt': 1 }")
+    Stream<Card> streamIdsByListIdInRankOrder(String listId);
+    
+    @Query(value = "{ 'rank': null, 'listId': { $ne: null } }", fields = "{ 'listId': 1 }")
+    List<Card> findUnranked();
+    
+    long countByListId(String listId);
+    
+    long countByListIdAndIsCompletedTrue(String listId);
+    
+    long deleteByListId(String listId);
     
     void deleteByBoardId(String boardId);
 }
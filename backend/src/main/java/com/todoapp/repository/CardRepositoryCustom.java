@@ -0,0 +1,34 @@
+package com.todoapp.repository;
+
+import com.todoapp.dto.request.CardFilter;
+import com.todoapp.model.Card;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CardRepositoryCustom {
+    
+    boolean updateListId(String cardId, String expectedListId, String listId, String rank);
+    
+    boolean addMember(String cardId, String userId);
+    
+    List<Card> findRankWindow(String listId, String excludedCardId, int skip, int limit);
+    
+    List<Card> findByBoardFilter(String boardId, CardFilter filter);
+    
+    List<Card> findPageInRankOrder(String listId, int skip, int limit);
+    
+    List<Card> findUnorderedPage(String listId, Collection<String> orderedIds, int skip, int limit);
+    
+    void updateRanks(String listId, Map<String, String> ranks);
+    
+    long deleteBatchByBoardId(String boardId, int limit);
+    
+    long deleteBatchByListId(String listId, int limit);
+    
+    Map<Integer, String> applyBulk(List<CardBulkWrite> writes);
+    
+    Optional<Card> patch(String cardId, Map<String, Object> changes, Long expectedVersion, boolean requireCompletionChange);
+}
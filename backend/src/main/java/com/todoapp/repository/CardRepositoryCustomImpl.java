@@ -0,0 +1,235 @@
+package com.todoapp.repository;
+
+import com.todoapp.dto.request.CardFilter;
+import com.todoapp.model.Card;
+import lombok.RequiredArgsConstructor;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public boolean updateListId(String cardId, String expectedListId, String listId, String rank) {
+        Query query = Query.query(Criteria.where("id").is(cardId).and("listId").is(expectedListId));
+        Update update = new Update().set("listId", listId).currentDate("updatedAt");
+        if (rank != null) {
+            update.set("rank", rank);
+        }
+        return mongoTemplate.updateFirst(query, update, Card.class).getMatchedCount() > 0;
+    }
+    
+    // Chỉ ghi memberIds, không đụng listId/rank mà move có thể vừa đổi; false nếu đã là member
+    @Override
+    public boolean addMember(String cardId, String userId) {
+        Query query = Query.query(Criteria.where("id").is(cardId).and("memberIds").ne(userId));
+        Update update = new Update().addToSet("memberIds", userId).inc("version", 1).currentDate("updatedAt");
+        return mongoTemplate.updateFirst(query, update, Card.class).getModifiedCount() > 0;
+    }
+    
+    @Override
+    public List<Card> findRankWindow(String listId, String excludedCardId, int skip, int limit) {
+        Query query = Query.query(Criteria.where("listId").is(listId).and("id").ne(excludedCardId))
+                .with(Sort.by(Sort.Order.asc("rank"), Sort.Order.asc("createdAt")))
+                .skip(skip)
+                .limit(limit);
+        query.fields().include("rank");
+        return mongoTemplate.find(query, Card.class);
+    }
+    
+    // Mọi điều kiện đều đi kèm boardId để dùng được các index board_* của cards
+    @Override
+    public List<Card> findByBoardFilter(String boardId, CardFilter filter) {
+        Criteria criteria = Criteria.where("boardId").is(boardId);
+        if (filter.getLabels() != null && !filter.getLabels().isEmpty()) {
+            criteria.and("labels").in(filter.getLabels());
+        }
+        if (filter.getMemberIds() != null && !filter.getMemberIds().isEmpty()) {
+            criteria.and("memberIds").in(filter.getMemberIds());
+        }
+        if (filter.getCompleted() != null) {
+            // Card cũ có thể thiếu isCompleted, coi như chưa hoàn thành
+            criteria.and("isCompleted").in(filter.getCompleted() ? List.of(true) : Arrays.asList(false, null));
+        }
+        if (filter.getDueFrom() != null || filter.getDueTo() != null) {
+            Criteria due = criteria.and("dueDate");
+            if (filter.getDueFrom() != null) {
+                due.gte(filter.getDueFrom());
+            }
+            if (filter.getDueTo() != null) {
+                due.lt(filter.getDueTo());
+            }
+        }
+        return mongoTemplate.find(Query.query(criteria), Card.class);
+    }
+    
+    // Một trang card theo thứ tự rank; _id làm khóa phụ để các trang không chồng lên nhau
+    @Override
+    public List<Card> findPageInRankOrder(String listId, int skip, int limit) {
+        Query query = Query.query(Criteria.where("listId").is(listId))
+                .with(Sort.by(Sort.Order.asc("rank"), Sort.Order.asc("createdAt"), Sort.Order.asc("id")))
+                .skip(skip)
+                .limit(limit);
+        return mongoTemplate.find(query, Card.class);
+    }
+    
+    // Card thuộc list nhưng chưa có trong cardOrderIds, xếp theo thời điểm tạo
+    @Override
+    public List<Card> findUnorderedPage(String listId, Collection<String> orderedIds, int skip, int limit) {
+        Query query = Query.query(Criteria.where("listId").is(listId).and("id").nin(orderedIds))
+                .with(Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id")))
+                .skip(skip)
+                .limit(limit);
+        return mongoTemplate.find(query, Card.class);
+    }
+    
+    @Override
+    public void updateRanks(String listId, Map<String, String> ranks) {
+        if (ranks.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Card.class);
+        ranks.forEach((cardId, rank) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(cardId).and("listId").is(listId)),
+                new Update().set("rank", rank)));
+        bulk.execute();
+    }
+    
+    @Override
+    public long deleteBatchByBoardId(String boardId, int limit) {
+        return TombstoneQueries.deleteBatch(mongoTemplate, Card.class, Criteria.where("boardId").is(boardId), limit);
+    }
+    
+    @Override
+    public long deleteBatchByListId(String listId, int limit) {
+        return TombstoneQueries.deleteBatch(mongoTemplate, Card.class, Criteria.where("listId").is(listId), limit);
+    }
+    
+    // requireCompletionChange: chỉ ghi nếu isCompleted thực sự đổi, để bộ đếm của board cộng trừ chính xác
+    @Override
+    public Optional<Card> patch(String cardId, Map<String, Object> changes, Long expectedVersion,
+                                boolean requireCompletionChange) {
+        Criteria criteria = Criteria.where("id").is(cardId);
+        if (requireCompletionChange) {
+            // isCompleted null ở dữ liệu cũ được tính là chưa hoàn thành
+            criteria = Boolean.TRUE.equals(changes.get("isCompleted"))
+                    ? criteria.and("isCompleted").ne(true)
+                    : criteria.and("isCompleted").is(true);
+        }
+        return Optional.ofNullable(VersionedPatch.apply(mongoTemplate, Card.class, criteria, changes, expectedVersion));
+    }
+    
+    // Trả về lỗi theo vị trí trong writes. Thao tác có điều kiện (chuyển list, xóa, đổi isCompleted) ghi từng lệnh
+    // để biết chắc lệnh nào khớp filter, nên thứ tự và bộ đếm của board chỉ cộng theo thay đổi đã thật sự ghi.
+    // Insert và update thường không ảnh hưởng bộ đếm nên đi chung một lệnh bulk không thứ tự
+    @Override
+    public Map<Integer, String> applyBulk(List<CardBulkWrite> writes) {
+        Map<Integer, String> failures = new HashMap<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Card.class);
+        List<Integer> batched = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            CardBulkWrite write = writes.get(i);
+            boolean applied = switch (write.type()) {
+                case INSERT -> {
+                    bulk.insert(write.card());
+                    batched.add(i);
+                    yield true;
+                }
+                case UPDATE -> {
+                    if (write.expectedCompleted() == null) {
+                        bulk.updateOne(conditionOf(write), changesOf(write));
+                        batched.add(i);
+                        yield true;
+                    }
+                    yield mongoTemplate.updateFirst(conditionOf(write), changesOf(write), Card.class).getMatchedCount() > 0;
+                }
+                case MOVE -> mongoTemplate.updateFirst(conditionOf(write), changesOf(write), Card.class).getMatchedCount() > 0;
+                case DELETE -> mongoTemplate.remove(conditionOf(write), Card.class).getDeletedCount() > 0;
+            };
+            if (!applied) {
+                failures.put(i, "Card was changed by another request");
+            }
+        }
+        
+        if (!batched.isEmpty()) {
+            executeBatched(bulk, writes, batched, failures);
+        }
+        return failures;
+    }
+    
+    private void executeBatched(BulkOperations bulk, List<CardBulkWrite> writes, List<Integer> batched,
+                                Map<Integer, String> failures) {
+        BulkWriteResult result;
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(batched.get(error.getIndex()), error.getMessage());
+            }
+            result = e.getResult();
+        }
+        
+        List<Integer> updates = batched.stream()
+                .filter(i -> writes.get(i).type() == CardBulkWrite.Type.UPDATE && !failures.containsKey(i))
+                .toList();
+        if (result.getMatchedCount() >= updates.size()) {
+            return;
+        }
+        // Tổng số khớp bị thiếu: update của card đã bị xóa ở request khác không được ghi
+        Query query = Query.query(Criteria.where("id").in(updates.stream().map(i -> writes.get(i).cardId()).toList()));
+        query.fields().include("id");
+        Set<String> existing = mongoTemplate.find(query, Card.class).stream()
+                .map(Card::getId)
+                .collect(Collectors.toSet());
+        for (Integer i : updates) {
+            if (!existing.contains(writes.get(i).cardId())) {
+                failures.put(i, "Card was changed by another request");
+            }
+        }
+    }
+    
+    private Query conditionOf(CardBulkWrite write) {
+        Criteria criteria = Criteria.where("id").is(write.cardId());
+        if (write.type() == CardBulkWrite.Type.MOVE || write.type() == CardBulkWrite.Type.DELETE) {
+            criteria.and("listId").is(write.expectedListId());
+        }
+        if (write.expectedCompleted() != null) {
+            // Card cũ có thể thiếu isCompleted, coi như chưa hoàn thành
+            criteria.and("isCompleted").in(write.expectedCompleted() ? List.of(true) : Arrays.asList(false, null));
+        }
+        return Query.query(criteria);
+    }
+    
+    private Update changesOf(CardBulkWrite write) {
+        if (write.type() == CardBulkWrite.Type.MOVE) {
+            Update update = new Update().set("listId", write.targetListId()).currentDate("updatedAt");
+            if (write.rank() != null) {
+                update.set("rank", write.rank());
+            }
+            return update;
+        }
+        Update update = new Update().inc("version", 1).currentDate("updatedAt");
+        write.changes().forEach(update::set);
+        return update;
+    }
+}
@@ -0,0 +1,14 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConversationRepository extends MongoRepository<Conversation, String>, ConversationRepositoryCustom {
+    
+    List<Conversation> findByParticipantIdsAndLastMessageAtNotNullOrderByLastMessageAtDesc(String userId, Pageable pageable);
+}
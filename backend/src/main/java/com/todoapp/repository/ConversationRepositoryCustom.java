@@ -0,0 +1,14 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Message;
+
+public interface ConversationRepositoryCustom {
+    
+    long recordMessage(Message message);
+    
+    long incrementUnread(String conversationKey, String userId, long delta);
+    
+    void replaceLastMessage(String conversationKey, Message lastMessage);
+    
+    long rebuildFromMessages();
+}
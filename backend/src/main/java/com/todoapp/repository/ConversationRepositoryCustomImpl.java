@@ -0,0 +1,122 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Conversation;
+import com.todoapp.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ConversationRepositoryCustomImpl implements ConversationRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public long recordMessage(Message message) {
+        String key = message.getConversationKey();
+        
+        Conversation conversation = mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(key)),
+                new Update()
+                        .setOnInsert("participantIds", List.of(message.getSenderId(), message.getReceiverId()))
+                        .inc("unreadCounts." + message.getReceiverId(), 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Conversation.class);
+        
+        // Chỉ thay lastMessage khi tin này mới hơn, hai lần gửi song song không ghi đè ngược thứ tự
+        Query newer = Query.query(Criteria.where("id").is(key).orOperator(
+                Criteria.where("lastMessageAt").is(null),
+                Criteria.where("lastMessageAt").lte(message.getCreatedAt())));
+        mongoTemplate.updateFirst(newer,
+                new Update().set("lastMessage", Conversation.LastMessage.from(message))
+                        .set("lastMessageAt", message.getCreatedAt()),
+                Conversation.class);
+        
+        return unreadOf(conversation, message.getReceiverId());
+    }
+    
+    // Trả về số tin chưa đọc sau khi cập nhật
+    @Override
+    public long incrementUnread(String conversationKey, String userId, long delta) {
+        Query query = Query.query(Criteria.where("id").is(conversationKey));
+        if (delta == 0) {
+            return unreadOf(mongoTemplate.findOne(query, Conversation.class), userId);
+        }
+        Conversation conversation = mongoTemplate.findAndModify(query,
+                new Update().inc("unreadCounts." + userId, delta),
+                FindAndModifyOptions.options().returnNew(true),
+                Conversation.class);
+        return unreadOf(conversation, userId);
+    }
+    
+    private static long unreadOf(Conversation conversation, String userId) {
+        if (conversation == null || conversation.getUnreadCounts() == null) {
+            return 0;
+        }
+        return conversation.getUnreadCounts().getOrDefault(userId, 0L);
+    }
+    
+    @Override
+    public void replaceLastMessage(String conversationKey, Message lastMessage) {
+        Query query = Query.query(Criteria.where("id").is(conversationKey));
+        if (lastMessage == null) {
+            // Chỉ bỏ tin cuối, giữ document để không mất unreadCounts mà recordMessage đang tăng song song
+            mongoTemplate.updateFirst(query, new Update().unset("lastMessage").unset("lastMessageAt"),
+                    Conversation.class);
+            return;
+        }
+        mongoTemplate.updateFirst(query,
+                new Update().set("lastMessage", Conversation.LastMessage.from(lastMessage))
+                        .set("lastMessageAt", lastMessage.getCreatedAt()),
+                Conversation.class);
+    }
+    
+    // Dựng lại toàn bộ summary từ collection messages (dùng khi collection conversations còn trống)
+    @Override
+    public long rebuildFromMessages() {
+        Aggregation latest = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("conversationKey").ne(null)),
+                stage(new Document("$sort", new Document("conversationKey", 1)
+                        .append("createdAt", -1).append("_id", -1))),
+                stage(new Document("$group", new Document("_id", "$conversationKey")
+                        .append("lastMessage", new Document("$first", "$$ROOT"))
+                        .append("lastMessageAt", new Document("$first", "$createdAt"))))
+        );
+        List<Conversation> conversations = mongoTemplate.aggregate(latest, "messages", Conversation.class)
+                .getMappedResults();
+        
+        Aggregation unread = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("conversationKey").ne(null).and("isRead").is(false)),
+                stage(new Document("$group", new Document("_id",
+                        new Document("key", "$conversationKey").append("receiverId", "$receiverId"))
+                        .append("count", new Document("$sum", 1L))))
+        );
+        Map<String, Map<String, Long>> unreadCounts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(unread, "messages", Document.class).getMappedResults()) {
+            Document id = row.get("_id", Document.class);
+            unreadCounts.computeIfAbsent(id.getString("key"), key -> new HashMap<>())
+                    .put(id.getString("receiverId"), ((Number) row.get("count")).longValue());
+        }
+        
+        conversations.forEach(conversation -> {
+            Conversation.LastMessage last = conversation.getLastMessage();
+            conversation.setParticipantIds(List.of(last.getSenderId(), last.getReceiverId()));
+            conversation.setUnreadCounts(unreadCounts.getOrDefault(conversation.getId(), new HashMap<>()));
+        });
+        mongoTemplate.insert(conversations, Conversation.class);
+        return conversations.size();
+    }
+    
+    private static AggregationOperation stage(Document document) {
+        return context -> document;
+    }
+}
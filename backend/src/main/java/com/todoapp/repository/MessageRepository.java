@@ -5,16 +5,23 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface MessageRepository extends MongoRepository<Message, String> {
+public interface MessageRepository extends MongoRepository<Message, String>, MessageRepositoryCustom {
     
     @Query("{ $or: [ { $and: [ { 'senderId': ?0 }, { 'receiverId': ?1 } ] }, { $and: [ { 'senderId': ?1 }, { 'receiverId': ?0 } ] } ] }")
     List<Message> findConversationBetweenUsers(String userId1, String userId2);
     
+    Optional<Message> findFirstByConversationKeyOrderByCreatedAtDescIdDesc(String conversationKey);
+    
     List<Message> findByReceiverIdAndIsReadFalse(String receiverId);
     
+    @Query(value = "{ '_id': { $in: ?0 }, 'receiverId': ?1, 'isRead': false }", fields = "{ 'senderId': 1 }")
+    List<Message> findUnreadSenders(Collection<String> messageIds, String receiverId);
+    
     @Query("{ $or: [ { 'senderId': ?0 }, { 'receiverId': ?0 } ] }")
     List<Message> findAllByUserId(String userId);
     
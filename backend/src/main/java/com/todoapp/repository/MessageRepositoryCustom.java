@@ -0,0 +1,20 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Message;
+import com.todoapp.util.MessageCursor;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+    
+    List<Message> findConversationPage(String conversationKey, MessageCursor before, MessageCursor after, int limit);
+    
+    long backfillConversationKeys();
+    
+    boolean markRead(String messageId);
+    
+    long markConversationRead(String conversationKey, String receiverId);
+    
+    long markRead(Collection<String> messageIds, String senderId, String receiverId);
+}
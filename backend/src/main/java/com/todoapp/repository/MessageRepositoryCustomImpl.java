@@ -0,0 +1,96 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Message;
+import com.todoapp.util.MessageCursor;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class MessageRepositoryCustomImpl implements MessageRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    // Mỗi trang là một lần quét khoảng trên index {conversationKey, createdAt, _id}
+    @Override
+    public List<Message> findConversationPage(String conversationKey, MessageCursor before, MessageCursor after, int limit) {
+        Criteria criteria = Criteria.where("conversationKey").is(conversationKey);
+        Sort.Direction direction = Sort.Direction.DESC;
+        
+        if (before != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").lt(before.createdAt()),
+                    Criteria.where("createdAt").is(before.createdAt()).and("id").lt(idValue(before.id())));
+        } else if (after != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").gt(after.createdAt()),
+                    Criteria.where("createdAt").is(after.createdAt()).and("id").gt(idValue(after.id())));
+            direction = Sort.Direction.ASC;
+        }
+        
+        Query query = Query.query(criteria)
+                .with(Sort.by(direction, "createdAt", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Message.class);
+    }
+    
+    // Gán conversationKey cho tin nhắn cũ bằng một lệnh updateMulti
+    @Override
+    public long backfillConversationKeys() {
+        Document senderFirst = new Document("$lte", List.of("$senderId", "$receiverId"));
+        Document key = new Document("$cond", List.of(senderFirst,
+                new Document("$concat", List.of("$senderId", ":", "$receiverId")),
+                new Document("$concat", List.of("$receiverId", ":", "$senderId"))));
+        AggregationOperation set = context -> new Document("$set", new Document("conversationKey", key));
+        
+        Query missing = Query.query(Criteria.where("conversationKey").exists(false));
+        return mongoTemplate.updateMulti(missing, AggregationUpdate.from(List.of(set)), Message.class)
+                .getModifiedCount();
+    }
+    
+    // Chỉ trả về true cho lần đánh dấu đầu tiên, để bộ đếm chưa đọc không bị trừ hai lần
+    @Override
+    public boolean markRead(String messageId) {
+        Query unread = Query.query(Criteria.where("id").is(messageId).and("isRead").is(false));
+        Update update = new Update().set("isRead", true).currentDate("updatedAt");
+        return mongoTemplate.updateFirst(unread, update, Message.class).getModifiedCount() > 0;
+    }
+    
+    // Đánh dấu mọi tin chưa đọc gửi tới receiverId trong hội thoại bằng một lệnh updateMulti
+    @Override
+    public long markConversationRead(String conversationKey, String receiverId) {
+        Query unread = Query.query(Criteria.where("conversationKey").is(conversationKey)
+                .and("receiverId").is(receiverId)
+                .and("isRead").is(false));
+        return markAll(unread);
+    }
+    
+    @Override
+    public long markRead(Collection<String> messageIds, String senderId, String receiverId) {
+        Query unread = Query.query(Criteria.where("id").in(messageIds)
+                .and("senderId").is(senderId)
+                .and("receiverId").is(receiverId)
+                .and("isRead").is(false));
+        return markAll(unread);
+    }
+    
+    private long markAll(Query unread) {
+        Update update = new Update().set("isRead", true).currentDate("updatedAt");
+        return mongoTemplate.updateMulti(unread, update, Message.class).getModifiedCount();
+    }
+    
+    // So sánh $lt/$gt trên _id cần đúng kiểu ObjectId, Spring không tự chuyển trong toán tử so sánh
+    private static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
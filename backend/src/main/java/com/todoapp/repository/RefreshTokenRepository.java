@@ -0,0 +1,11 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.RefreshToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RefreshTokenRepository extends MongoRepository<RefreshToken, String>, RefreshTokenRepositoryCustom {
+    
+    boolean existsByFamilyIdAndRevokedTrue(String familyId);
+}
@@ -0,0 +1,15 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.RefreshToken;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RefreshTokenRepositoryCustom {
+    
+    Optional<RefreshToken> markUsed(String tokenId);
+    
+    void revokeFamily(String familyId);
+    
+    List<String> findRevokedFamilyIds();
+}
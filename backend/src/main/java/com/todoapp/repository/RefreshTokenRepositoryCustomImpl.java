@@ -0,0 +1,45 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.RefreshToken;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class RefreshTokenRepositoryCustomImpl implements RefreshTokenRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    // Chỉ một request đổi được token: điều kiện usedAt = null đảm bảo tính nguyên tử
+    @Override
+    public Optional<RefreshToken> markUsed(String tokenId) {
+        Query query = Query.query(Criteria.where("id").is(tokenId)
+                .and("usedAt").is(null)
+                .and("revoked").is(false));
+        return Optional.ofNullable(mongoTemplate.findAndModify(query,
+                new Update().set("usedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                RefreshToken.class));
+    }
+    
+    @Override
+    public void revokeFamily(String familyId) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("familyId").is(familyId)),
+                new Update().set("revoked", true),
+                RefreshToken.class);
+    }
+    
+    // Bản ghi hết hạn đã bị TTL xóa nên danh sách chỉ gồm các family còn có thể bị dùng lại
+    @Override
+    public List<String> findRevokedFamilyIds() {
+        return mongoTemplate.findDistinct(Query.query(Criteria.where("revoked").is(true)),
+                "familyId", RefreshToken.class, String.class);
+    }
+}
@@ -2,14 +2,36 @@ package com.todoapp.repository;
 
 import com.todoapp.model.TaskList;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TaskListRepository extends MongoRepository<TaskList, String> {
+public interface TaskListRepository extends MongoRepository<TaskList, String>, TaskListRepositoryCustom {
     
     List<TaskList> findByBoardId(String boardId);
     
+    // List đã xóa (deletedAt != null) coi như không tồn tại
+    Optional<TaskList> findByIdAndDeletedAtIsNull(String id);
+    
+    List<TaskList> findByBoardIdAndDeletedAtIsNull(String boardId);
+    
+    @Query(value = "{ '_id': ?0, 'deletedAt': null }", fields = "{ 'boardId': 1 }")
+    Optional<TaskList> findRefById(String id);
+    
+    boolean existsByIdAndDeletedAtIsNull(String id);
+    
+    Optional<TaskList> findFirstByBoardIdOrderByRankDesc(String boardId);
+    
+    boolean existsByIdAndBoardIdAndDeletedAtIsNull(String id, String boardId);
+    
+    @Query(value = "{ 'boardId': ?0 }", fields = "{ 'rank': 1, 'createdAt': 1 }")
+    List<TaskList> findRanksByBoardId(String boardId);
+    
+    @Query(value = "{ 'rank': null }", fields = "{ 'boardId': 1 }")
+    List<TaskList> findUnranked();
+    
     void deleteByBoardId(String boardId);
 }
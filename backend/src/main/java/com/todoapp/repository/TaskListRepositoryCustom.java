@@ -0,0 +1,28 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.TaskList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface TaskListRepositoryCustom {
+    
+    Optional<Integer> insertCardId(String listId, String boardId, String cardId, int index);
+    
+    void removeCardId(String listId, String cardId);
+    
+    void updateRanks(String boardId, Map<String, String> ranks);
+    
+    boolean markDeleted(String listId);
+    
+    List<String> findDeletedIds(int limit);
+    
+    long deleteBatchByBoardId(String boardId, int limit);
+    
+    Optional<TaskList> patch(String listId, Map<String, Object> changes, Long expectedVersion);
+    
+    void applyCardOrderChanges(Map<String, List<String>> replacements,
+                               Map<String, List<String>> removals,
+                               Map<String, List<String>> additions);
+}
@@ -0,0 +1,118 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.TaskList;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class TaskListRepositoryCustomImpl implements TaskListRepositoryCustom {
+    
+    private static final String COLLECTION = "lists";
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Optional<Integer> insertCardId(String listId, String boardId, String cardId, int index) {
+        Document filter = new Document("_id", listId).append("boardId", boardId).append("deletedAt", null);
+        Document position = new Document("position", new Document("$indexOfArray", List.of("$cardOrderIds", cardId)));
+        Query query = new BasicQuery(filter, position);
+        
+        Document list = mongoTemplate.findAndModify(query, insertAt(cardId, index),
+                FindAndModifyOptions.options().returnNew(true), Document.class, COLLECTION);
+        return Optional.ofNullable(list).map(result -> result.getInteger("position"));
+    }
+    
+    @Override
+    public void removeCardId(String listId, String cardId) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(listId)),
+                new Update().pull("cardOrderIds", cardId).currentDate("updatedAt"),
+                COLLECTION);
+    }
+    
+    @Override
+    public void updateRanks(String boardId, Map<String, String> ranks) {
+        if (ranks.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TaskList.class);
+        ranks.forEach((listId, rank) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(listId).and("boardId").is(boardId)),
+                new Update().set("rank", rank)));
+        bulk.execute();
+    }
+    
+    @Override
+    public boolean markDeleted(String listId) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(listId).and("deletedAt").is(null)),
+                new Update().currentDate("deletedAt"),
+                TaskList.class).getModifiedCount() > 0;
+    }
+    
+    @Override
+    public List<String> findDeletedIds(int limit) {
+        return TombstoneQueries.findDeletedIds(mongoTemplate, TaskList.class, limit);
+    }
+    
+    @Override
+    public long deleteBatchByBoardId(String boardId, int limit) {
+        return TombstoneQueries.deleteBatch(mongoTemplate, TaskList.class, Criteria.where("boardId").is(boardId), limit);
+    }
+    
+    @Override
+    public Optional<TaskList> patch(String listId, Map<String, Object> changes, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(listId).and("deletedAt").is(null);
+        return Optional.ofNullable(VersionedPatch.apply(mongoTemplate, TaskList.class, criteria, changes, expectedVersion));
+    }
+    
+    // Thay cả mảng, rồi gỡ, rồi mới thêm (bulk có thứ tự), để card chuyển giữa hai list không bị mất
+    @Override
+    public void applyCardOrderChanges(Map<String, List<String>> replacements,
+                                      Map<String, List<String>> removals,
+                                      Map<String, List<String>> additions) {
+        if (replacements.isEmpty() && removals.isEmpty() && additions.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, TaskList.class);
+        replacements.forEach((listId, cardIds) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(listId)),
+                new Update().set("cardOrderIds", cardIds).currentDate("updatedAt")));
+        removals.forEach((listId, cardIds) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(listId)),
+                new Update().pullAll("cardOrderIds", cardIds.toArray()).currentDate("updatedAt")));
+        additions.forEach((listId, cardIds) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(listId)),
+                new Update().push("cardOrderIds").each(cardIds.toArray()).currentDate("updatedAt")));
+        bulk.execute();
+    }
+    
+    // Bỏ cardId khỏi mảng (nếu đã có) rồi chèn lại tại index, tất cả trong một lệnh update
+    private static AggregationUpdate insertAt(String cardId, int index) {
+        Document others = new Document("$filter", new Document("input",
+                new Document("$ifNull", List.of("$cardOrderIds", List.of())))
+                .append("cond", new Document("$ne", List.of("$$this", cardId))));
+        Document reordered = new Document("$concatArrays", List.of(
+                new Document("$slice", List.of(others, index)),
+                List.of(cardId),
+                new Document("$slice", List.of(others, index, Integer.MAX_VALUE))));
+        
+        AggregationOperation set = context -> new Document("$set", new Document("cardOrderIds", reordered)
+                .append("updatedAt", "$$NOW"));
+        return AggregationUpdate.from(List.of(set));
+    }
+}
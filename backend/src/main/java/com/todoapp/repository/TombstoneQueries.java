@@ -0,0 +1,40 @@
+package com.todoapp.repository;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+// Truy vấn dùng chung cho việc xóa mềm board/list và dọn dữ liệu con theo lô
+final class TombstoneQueries {
+    
+    private TombstoneQueries() {
+    }
+    
+    // Bản ghi bị đánh dấu xóa lâu nhất trước
+    static List<String> findDeletedIds(MongoTemplate mongoTemplate, Class<?> entityClass, int limit) {
+        Query query = Query.query(Criteria.where("deletedAt").ne(null))
+                .with(Sort.by(Sort.Direction.ASC, "deletedAt"))
+                .limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(entityClass)).stream()
+                .map(document -> document.get("_id").toString())
+                .toList();
+    }
+    
+    // Xóa tối đa limit bản ghi khớp criteria: lấy id trước để mỗi lệnh xóa có kích thước giới hạn
+    static long deleteBatch(MongoTemplate mongoTemplate, Class<?> entityClass, Criteria criteria, int limit) {
+        Query idQuery = Query.query(criteria).limit(limit);
+        idQuery.fields().include("_id");
+        List<Object> ids = mongoTemplate.find(idQuery, Document.class, mongoTemplate.getCollectionName(entityClass)).stream()
+                .map(document -> document.get("_id"))
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), entityClass).getDeletedCount();
+    }
+}
@@ -0,0 +1,17 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    
+    long incrementTokenEpoch(String userId);
+    
+    boolean deactivate(String userId);
+    
+    List<User> findTokenRevocationsSince(LocalDateTime since);
+    
+    boolean updatePassword(String userId, String expectedPassword, String password);
+}
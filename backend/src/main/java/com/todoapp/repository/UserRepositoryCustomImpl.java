@@ -0,0 +1,56 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public long incrementTokenEpoch(String userId) {
+        Query query = Query.query(Criteria.where("id").is(userId));
+        query.fields().include("tokenEpoch");
+        
+        User user = mongoTemplate.findAndModify(query,
+                new Update().inc("tokenEpoch", 1).set("tokenEpochUpdatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        return user != null && user.getTokenEpoch() != null ? user.getTokenEpoch() : 0L;
+    }
+    
+    // Khóa tài khoản và tăng epoch cùng lúc, để TokenRevocationRegistry ở mọi instance nhận ra qua tokenEpochUpdatedAt
+    @Override
+    public boolean deactivate(String userId) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(userId)),
+                new Update().set("isActive", false)
+                        .inc("tokenEpoch", 1)
+                        .set("tokenEpochUpdatedAt", LocalDateTime.now()),
+                User.class).getMatchedCount() > 0;
+    }
+    
+    @Override
+    public List<User> findTokenRevocationsSince(LocalDateTime since) {
+        Query query = Query.query(Criteria.where("tokenEpochUpdatedAt").gte(since));
+        query.fields().include("tokenEpoch", "isActive");
+        return mongoTemplate.find(query, User.class);
+    }
+    
+    // Chỉ ghi khi hash chưa bị đổi bởi request khác
+    @Override
+    public boolean updatePassword(String userId, String expectedPassword, String password) {
+        Query query = Query.query(Criteria.where("id").is(userId).and("password").is(expectedPassword));
+        return mongoTemplate.updateFirst(query,
+                new Update().set("password", password).set("updatedAt", LocalDateTime.now()),
+                User.class).getModifiedCount() > 0;
+    }
+}
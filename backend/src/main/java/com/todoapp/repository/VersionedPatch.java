@@ -0,0 +1,32 @@
+package com.todoapp.repository;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// $set chỉ các field được gửi lên và so khớp version trong cùng một lệnh findAndModify
+final class VersionedPatch {
+    
+    private VersionedPatch() {
+    }
+    
+    // Trả về bản ghi sau khi ghi, hoặc null nếu không khớp (không tồn tại hoặc sai version)
+    static <T> T apply(MongoTemplate mongoTemplate, Class<T> entityClass, Criteria criteria,
+                       Map<String, Object> changes, Long expectedVersion) {
+        if (expectedVersion != null) {
+            // Bản ghi cũ chưa có field version được coi là version 0
+            criteria.and("version").in(expectedVersion == 0 ? Arrays.asList(0L, null) : List.of(expectedVersion));
+        }
+        
+        Update update = new Update().inc("version", 1).currentDate("updatedAt");
+        changes.forEach(update::set);
+        return mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), entityClass);
+    }
+}
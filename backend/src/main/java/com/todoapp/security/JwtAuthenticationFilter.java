@@ -1,26 +1,43 @@
 package com.todoapp.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final RefreshTokenRevocationIndex sessionRevocationIndex;
+    private final boolean statelessPrincipal;
+    
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider,
+                                   CustomUserDetailsService userDetailsService,
+                                   TokenRevocationRegistry revocationRegistry,
+                                   RefreshTokenRevocationIndex sessionRevocationIndex,
+                                   @Value("${jwt.stateless-principal:true}") boolean statelessPrincipal) {
+        this.tokenProvider = tokenProvider;
+        this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
+        this.sessionRevocationIndex = sessionRevocationIndex;
+        this.statelessPrincipal = statelessPrincipal;
+    }
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -29,20 +46,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         String token = getJwtFromRequest(request);
         
-        if (StringUtils.hasText(token) && tokenProvider.validateToken(token)) {
-            String userId = tokenProvider.getUserIdFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserById(userId);
-            
-            UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (StringUtils.hasText(token)) {
+            tokenProvider.parseClaims(token)
+                    .filter(tokenProvider::isAccessToken)
+                    .flatMap(this::loadPrincipal)
+                    .filter(UserDetails::isEnabled)
+                    .ifPresent(userDetails -> {
+                        UsernamePasswordAuthenticationToken authentication = 
+                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    });
         }
         
         filterChain.doFilter(request, response);
     }
     
+    private Optional<UserDetails> loadPrincipal(Claims claims) {
+        String userId = claims.getSubject();
+        if (revocationRegistry.isRevoked(userId, JwtTokenProvider.epochOf(claims))
+                || sessionRevocationIndex.isRevoked(JwtTokenProvider.sessionOf(claims))) {
+            return Optional.empty();
+        }
+        if (statelessPrincipal && UserPrincipal.hasProfileClaims(claims)) {
+            return Optional.of(UserPrincipal.fromClaims(claims));
+        }
+        
+        // Token phát trước khi có claims (hoặc tắt chế độ stateless): nạp user từ DB như trước
+        try {
+            return Optional.of(userDetailsService.loadUserById(userId));
+        } catch (UsernameNotFoundException ex) {
+            return Optional.empty();
+        }
+    }
+    
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
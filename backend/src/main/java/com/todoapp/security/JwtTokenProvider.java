@@ -1,81 +1,186 @@
 package com.todoapp.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
     
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_DISPLAY_NAME = "name";
+    public static final String CLAIM_PREMIUM = "premium";
+    public static final String CLAIM_ACTIVE = "active";
+    public static final String CLAIM_EPOCH = "epoch";
+    public static final String CLAIM_SESSION = "sid";
+    public static final String CLAIM_TYPE = "type";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
     
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static final int CACHE_STRIPES = 16;
     
-    @Value("${jwt.refresh-expiration}")
-    private long refreshExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
     
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // SHA-256 của token đã xác thực -> claims, giữ tới khi token hết hạn để request lặp lại bỏ qua verify và parse JSON.
+    // Chia thành nhiều LRU nhỏ theo khóa để các request không xếp hàng chờ một khóa chung
+    private final VerifiedStripe[] verifiedTokens;
+    
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+                            @Value("${jwt.expiration}") long jwtExpiration,
+                            @Value("${jwt.refresh-expiration}") long refreshExpiration,
+                            @Value("${jwt.verified-cache.max-entries:10000}") int verifiedCacheMaxEntries) {
+        // Key và parser dùng chung cho mọi request, không decode lại secret mỗi lần
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        // max-entries = 0 tắt cache
+        this.verifiedTokens = new VerifiedStripe[verifiedCacheMaxEntries > 0 ? CACHE_STRIPES : 0];
+        for (int i = 0; i < verifiedTokens.length; i++) {
+            verifiedTokens[i] = new VerifiedStripe(Math.max(1, verifiedCacheMaxEntries / CACHE_STRIPES));
+        }
     }
     
-    public String generateAccessToken(Authentication authentication) {
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return generateToken(userPrincipal.getId(), jwtExpiration);
+    // Access token mang đủ thông tin để dựng lại UserPrincipal mà không cần đọc DB
+    public String generateAccessToken(UserPrincipal principal, String sessionId) {
+        return generateToken(principal.getId(), null, jwtExpiration, Map.of(
+                CLAIM_EMAIL, principal.getEmail(),
+                CLAIM_DISPLAY_NAME, principal.getDisplayName() != null ? principal.getDisplayName() : "",
+                CLAIM_PREMIUM, Boolean.TRUE.equals(principal.getIsPremium()),
+                CLAIM_ACTIVE, principal.isEnabled(),
+                CLAIM_EPOCH, principal.getTokenEpoch(),
+                CLAIM_SESSION, sessionId,
+                CLAIM_TYPE, TYPE_ACCESS));
     }
     
-    public String generateAccessToken(String userId) {
-        return generateToken(userId, jwtExpiration);
+    // jti trỏ tới bản ghi RefreshToken, sid là family (phiên đăng nhập) của token
+    public String generateRefreshToken(UserPrincipal principal, String tokenId, String sessionId) {
+        return generateToken(principal.getId(), tokenId, refreshExpiration, Map.of(
+                CLAIM_EPOCH, principal.getTokenEpoch(),
+                CLAIM_SESSION, sessionId,
+                CLAIM_TYPE, TYPE_REFRESH));
     }
     
-    public String generateRefreshToken(String userId) {
-        return generateToken(userId, refreshExpiration);
+    public long getRefreshExpiration() {
+        return refreshExpiration;
     }
     
-    private String generateToken(String userId, long expiration) {
+    private String generateToken(String userId, String tokenId, long expiration, Map<String, ?> claims) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
         
         return Jwts.builder()
                 .subject(userId)
+                .id(tokenId)
+                .claims(claims)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    // Xác thực chữ ký và đọc claims trong một lần parse
+    public Optional<Claims> parseClaims(String token) {
+        if (verifiedTokens.length == 0) {
+            return verify(token);
+        }
         
-        return claims.getSubject();
+        long now = System.currentTimeMillis();
+        String key = digestOf(token);
+        VerifiedStripe stripe = verifiedTokens[Math.floorMod(key.hashCode(), verifiedTokens.length)];
+        VerifiedToken cached;
+        synchronized (stripe) {
+            cached = stripe.get(key);
+            if (cached != null && now >= cached.expiresAt()) {
+                stripe.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            return Optional.of(cached.claims());
+        }
+        
+        Optional<Claims> claims = verify(token);
+        claims.filter(verified -> verified.getExpiration() != null).ifPresent(verified -> {
+            synchronized (stripe) {
+                stripe.put(key, new VerifiedToken(verified, verified.getExpiration().getTime()));
+            }
+        });
+        return claims;
     }
     
-    public boolean validateToken(String token) {
+    private Optional<Claims> verify(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (MalformedJwtException | ExpiredJwtException | 
-                 UnsupportedJwtException | IllegalArgumentException ex) {
-            return false;
+            return Optional.of(parser.parseSignedClaims(token).getPayload());
+        } catch (JwtException | IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+    
+    // Token phát trước khi có epoch được coi là epoch 0
+    public static long epochOf(Claims claims) {
+        Number epoch = claims.get(CLAIM_EPOCH, Number.class);
+        return epoch != null ? epoch.longValue() : 0L;
+    }
+    
+    public static String sessionOf(Claims claims) {
+        return claims.get(CLAIM_SESSION, String.class);
+    }
+    
+    // Token phát trước khi có claim type không phân biệt được access hay refresh:
+    // chỉ nhận làm access token trong thời hạn của một access token
+    public boolean isAccessToken(Claims claims) {
+        String type = claims.get(CLAIM_TYPE, String.class);
+        if (type != null || claims.getId() != null) {
+            return TYPE_ACCESS.equals(type);
+        }
+        return claims.getIssuedAt() != null
+                && claims.getIssuedAt().getTime() + jwtExpiration > System.currentTimeMillis();
+    }
+    
+    // SHA-256 của token, dùng làm khóa thay cho chuỗi JWT gốc
+    public static String digestOf(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+    
+    // LRU của một stripe: đầy thì bỏ token lâu không dùng nhất
+    private static final class VerifiedStripe extends LinkedHashMap<String, VerifiedToken> {
+        private final int maxEntries;
+        
+        private VerifiedStripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > maxEntries;
         }
     }
 }
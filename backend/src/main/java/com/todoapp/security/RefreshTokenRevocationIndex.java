@@ -0,0 +1,75 @@
+package com.todoapp.security;
+
+import com.todoapp.repository.RefreshTokenRepository;
+import com.todoapp.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục các phiên (token family) đã bị thu hồi, kiểm tra ở mỗi request mà không cần đọc DB:
+ * Bloom filter trả lời "chắc chắn chưa bị thu hồi" cho hầu hết request, tập hợp chính xác xác nhận
+ * các trường hợp dương tính. Khi tập hợp vượt giới hạn thì phần dương tính còn lại mới hỏi tới Mongo.
+ */
+@Component
+public class RefreshTokenRevocationIndex {
+    
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final int maxEntries;
+    
+    private volatile BloomFilter bloom;
+    private volatile Set<String> revokedFamilies = ConcurrentHashMap.newKeySet();
+    
+    public RefreshTokenRevocationIndex(RefreshTokenRepository refreshTokenRepository,
+                                       @Value("${jwt.refresh-revocation.max-entries:100000}") int maxEntries) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.maxEntries = maxEntries;
+        this.bloom = new BloomFilter(maxEntries, FALSE_POSITIVE_RATE);
+    }
+    
+    public boolean isRevoked(String familyId) {
+        if (familyId == null || !bloom.mightContain(familyId)) {
+            return false;
+        }
+        if (revokedFamilies.contains(familyId)) {
+            return true;
+        }
+        // Dương tính giả của Bloom, hoặc family không giữ được trong bộ nhớ
+        return revokedFamilies.size() >= maxEntries && refreshTokenRepository.existsByFamilyIdAndRevokedTrue(familyId);
+    }
+    
+    public void revoke(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+        bloom.put(familyId);
+        if (revokedFamilies.size() < maxEntries) {
+            revokedFamilies.add(familyId);
+        }
+    }
+    
+    // Dựng lại từ Mongo: bỏ các family đã hết hạn và nhận thu hồi từ các instance khác
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-ms:30000}")
+    public void sync() {
+        List<String> familyIds = refreshTokenRepository.findRevokedFamilyIds();
+        
+        BloomFilter rebuilt = new BloomFilter(Math.max(maxEntries, familyIds.size()), FALSE_POSITIVE_RATE);
+        Set<String> exact = ConcurrentHashMap.newKeySet();
+        for (String familyId : familyIds) {
+            rebuilt.put(familyId);
+            if (exact.size() < maxEntries) {
+                exact.add(familyId);
+            }
+        }
+        
+        revokedFamilies = exact;
+        bloom = rebuilt;
+    }
+}
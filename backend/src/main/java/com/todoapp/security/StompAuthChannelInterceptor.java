@@ -0,0 +1,62 @@
+package com.todoapp.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+// Xác thực JWT ở frame CONNECT; tên principal là userId để gửi tới /user/{userId}/queue/...
+@Component
+@RequiredArgsConstructor
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+    
+    private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final RefreshTokenRevocationIndex sessionRevocationIndex;
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String token = getJwtFromHeaders(accessor);
+            Claims claims = StringUtils.hasText(token) ? tokenProvider.parseClaims(token).orElse(null) : null;
+            if (claims == null
+                    || revocationRegistry.isRevoked(claims.getSubject(), JwtTokenProvider.epochOf(claims))
+                    || sessionRevocationIndex.isRevoked(JwtTokenProvider.sessionOf(claims))) {
+                throw new MessagingException("Invalid or missing access token");
+            }
+            
+            String userId = claims.getSubject();
+            accessor.setUser(new UsernamePasswordAuthenticationToken(
+                    userId, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        } else if (accessor.getCommand() != null && accessor.getUser() == null
+                && !StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            throw new MessagingException("Not authenticated");
+        }
+        
+        return message;
+    }
+    
+    private String getJwtFromHeaders(StompHeaderAccessor accessor) {
+        String bearerToken = accessor.getFirstNativeHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
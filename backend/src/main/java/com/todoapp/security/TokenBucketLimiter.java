@@ -0,0 +1,68 @@
+package com.todoapp.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket trong bộ nhớ theo key (email, IP...). Khóa theo dải (striped) thay vì một khóa chung,
+ * bucket đầy và không dùng tới sẽ bị dọn bởi {@link #evictIdle()}.
+ */
+public class TokenBucketLimiter {
+    
+    private static final int STRIPES = 64;
+    
+    private final double capacity;
+    private final double tokensPerNano;
+    private final long idleNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+    
+    public TokenBucketLimiter(int capacity, int refillPerMinute) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        // Sau khoảng này bucket chắc chắn đã đầy lại, bỏ đi cũng không mất trạng thái
+        this.idleNanos = Math.max((long) (capacity / tokensPerNano), TimeUnit.MINUTES.toNanos(1));
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    // Trả về 0 nếu được phép, ngược lại là số nano giây phải chờ tới khi có token
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        synchronized (lockFor(key)) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * tokensPerNano);
+            bucket.updatedAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+        }
+    }
+    
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> {
+            synchronized (lockFor(entry.getKey())) {
+                return now - entry.getValue().updatedAt > idleNanos;
+            }
+        });
+    }
+    
+    private Object lockFor(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+    
+    private static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+        
+        private Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.todoapp.security;
+
+import com.todoapp.model.User;
+import com.todoapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách nhỏ trong bộ nhớ: userId -> epoch tối thiểu mà access token phải có.
+ * Chỉ giữ các user bị thu hồi token trong khoảng thời gian sống của access token,
+ * token cũ hơn thế đã tự hết hạn nên không cần theo dõi nữa.
+ */
+@Component
+public class TokenRevocationRegistry {
+    
+    private final UserRepository userRepository;
+    private final long accessTokenLifetimeMs;
+    private final Map<String, Long> minimumEpochs = new ConcurrentHashMap<>();
+    
+    public TokenRevocationRegistry(UserRepository userRepository,
+                                   @Value("${jwt.expiration}") long accessTokenLifetimeMs) {
+        this.userRepository = userRepository;
+        this.accessTokenLifetimeMs = accessTokenLifetimeMs;
+    }
+    
+    public boolean isRevoked(String userId, long epoch) {
+        Long minimum = minimumEpochs.get(userId);
+        return minimum != null && epoch < minimum;
+    }
+    
+    // Thu hồi mọi token đã phát cho user (đăng xuất mọi nơi)
+    public long revokeAll(String userId) {
+        long epoch = userRepository.incrementTokenEpoch(userId);
+        minimumEpochs.merge(userId, epoch, Math::max);
+        return epoch;
+    }
+    
+    // Khóa tài khoản: access token đang lưu hành bị từ chối ngay, không phải chờ hết hạn
+    public boolean deactivate(String userId) {
+        if (!userRepository.deactivate(userId)) {
+            return false;
+        }
+        minimumEpochs.put(userId, Long.MAX_VALUE);
+        return true;
+    }
+    
+    // Đồng bộ với thay đổi từ các instance khác
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-ms:30000}")
+    public void sync() {
+        LocalDateTime since = LocalDateTime.now().minus(accessTokenLifetimeMs, ChronoUnit.MILLIS);
+        
+        Map<String, Long> latest = new HashMap<>();
+        for (User user : userRepository.findTokenRevocationsSince(since)) {
+            // Tài khoản bị khóa: từ chối mọi token, kể cả token phát sau lần thu hồi
+            long minimum = Boolean.FALSE.equals(user.getIsActive()) ? Long.MAX_VALUE : user.getTokenEpoch();
+            latest.put(user.getId(), minimum);
+        }
+        
+        minimumEpochs.keySet().retainAll(latest.keySet());
+        minimumEpochs.putAll(latest);
+    }
+}
@@ -1,6 +1,7 @@
 package com.todoapp.security;
 
 import com.todoapp.model.User;
+import io.jsonwebtoken.Claims;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,6 +23,7 @@ public class UserPrincipal implements UserDetails {
     private String displayName;
     private Boolean isPremium;
     private Boolean isActive;
+    private long tokenEpoch;
     
     public static UserPrincipal create(User user) {
         return UserPrincipal.builder()
@@ -31,6 +33,24 @@ public class UserPrincipal implements UserDetails {
                 .displayName(user.getDisplayName())
                 .isPremium(user.getIsPremium())
                 .isActive(user.getIsActive())
+                .tokenEpoch(user.getTokenEpoch() != null ? user.getTokenEpoch() : 0L)
+                .build();
+    }
+    
+    // Token cũ chỉ có subject, phải nạp user từ DB
+    public static boolean hasProfileClaims(Claims claims) {
+        return claims.containsKey(JwtTokenProvider.CLAIM_EMAIL) && claims.containsKey(JwtTokenProvider.CLAIM_ACTIVE);
+    }
+    
+    // Dựng từ claims của access token; không có password vì không dùng để đăng nhập
+    public static UserPrincipal fromClaims(Claims claims) {
+        return UserPrincipal.builder()
+                .id(claims.getSubject())
+                .email(claims.get(JwtTokenProvider.CLAIM_EMAIL, String.class))
+                .displayName(claims.get(JwtTokenProvider.CLAIM_DISPLAY_NAME, String.class))
+                .isPremium(claims.get(JwtTokenProvider.CLAIM_PREMIUM, Boolean.class))
+                .isActive(claims.get(JwtTokenProvider.CLAIM_ACTIVE, Boolean.class))
+                .tokenEpoch(JwtTokenProvider.epochOf(claims))
                 .build();
     }
     
@@ -8,12 +8,12 @@ import com.todoapp.exception.BadRequestException;
 import com.todoapp.model.User;
 import com.todoapp.repository.UserRepository;
 import com.todoapp.security.JwtTokenProvider;
+import com.todoapp.security.TokenRevocationRegistry;
 import com.todoapp.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,9 +21,10 @@ import org.springframework.stereotype.Service;
 public class AuthService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtTokenProvider tokenProvider;
-    private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
     
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -32,47 +33,73 @@ public class AuthService {
         
         User user = User.builder()
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHashingService.encode(request.getPassword()))
                 .displayName(request.getDisplayName())
                 .isActive(true)
                 .build();
         
         user = userRepository.save(user);
         
-        String accessToken = tokenProvider.generateAccessToken(user.getId());
-        String refreshToken = tokenProvider.generateRefreshToken(user.getId());
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(UserPrincipal.create(user));
         
-        return AuthResponse.of(accessToken, refreshToken, UserResponse.fromEntity(user));
+        return AuthResponse.of(tokens.accessToken(), tokens.refreshToken(), UserResponse.fromEntity(user));
     }
     
     public AuthResponse login(LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+        // So khớp mật khẩu trên pool hash riêng thay vì đi qua AuthenticationManager trên luồng request
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+        String encodedPassword = user != null ? user.getPassword() : null;
+        if (!passwordHashingService.matches(request.getPassword(), encodedPassword)) {
+            throw new BadCredentialsException("Bad credentials");
+        }
         
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        UserPrincipal userPrincipal = UserPrincipal.create(user);
+        if (!userPrincipal.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
         
-        User user = userRepository.findById(userPrincipal.getId())
-                .orElseThrow(() -> new BadRequestException("User not found"));
+        passwordHashingService.upgradeIfNeeded(request.getPassword(), encodedPassword,
+                rehashed -> userRepository.updatePassword(user.getId(), encodedPassword, rehashed));
         
-        String accessToken = tokenProvider.generateAccessToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(userPrincipal.getId());
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(userPrincipal);
         
-        return AuthResponse.of(accessToken, refreshToken, UserResponse.fromEntity(user));
+        return AuthResponse.of(tokens.accessToken(), tokens.refreshToken(), UserResponse.fromEntity(user));
     }
     
     public AuthResponse refreshToken(String refreshToken) {
-        if (!tokenProvider.validateToken(refreshToken)) {
-            throw new BadRequestException("Invalid refresh token");
-        }
+        Claims claims = parseRefreshToken(refreshToken);
         
-        String userId = tokenProvider.getUserIdFromToken(refreshToken);
-        User user = userRepository.findById(userId)
+        User user = userRepository.findById(claims.getSubject())
                 .orElseThrow(() -> new BadRequestException("User not found"));
         
-        String newAccessToken = tokenProvider.generateAccessToken(userId);
-        String newRefreshToken = tokenProvider.generateRefreshToken(userId);
+        // Refresh là lúc duy nhất đọc lại user: chặn token đã bị thu hồi hoặc tài khoản bị khóa
+        UserPrincipal principal = UserPrincipal.create(user);
+        if (!principal.isEnabled() || JwtTokenProvider.epochOf(claims) < principal.getTokenEpoch()) {
+            throw new BadRequestException("Invalid refresh token");
+        }
+        
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.rotate(refreshToken, claims, principal);
         
-        return AuthResponse.of(newAccessToken, newRefreshToken, UserResponse.fromEntity(user));
+        return AuthResponse.of(tokens.accessToken(), tokens.refreshToken(), UserResponse.fromEntity(user));
+    }
+    
+    // Đăng xuất phiên hiện tại: thu hồi family của refresh token, access token cùng phiên cũng bị từ chối
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken, parseRefreshToken(refreshToken));
+    }
+    
+    // Đăng xuất mọi nơi: chỉ tăng tokenEpoch của user, mọi token phát trước đó đều hết hiệu lực
+    public void logoutEverywhere(String userId) {
+        tokenRevocationRegistry.revokeAll(userId);
+    }
+    
+    private Claims parseRefreshToken(String refreshToken) {
+        Claims claims = refreshToken != null ? tokenProvider.parseClaims(refreshToken).orElse(null) : null;
+        // Access token mang claims hồ sơ, không được dùng thay refresh token
+        if (claims == null || UserPrincipal.hasProfileClaims(claims)
+                || JwtTokenProvider.TYPE_ACCESS.equals(claims.get(JwtTokenProvider.CLAIM_TYPE, String.class))) {
+            throw new BadRequestException("Invalid refresh token");
+        }
+        return claims;
     }
 }
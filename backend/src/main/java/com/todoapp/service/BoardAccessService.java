@@ -0,0 +1,95 @@
+package com.todoapp.service;
+
+import com.todoapp.exception.BadRequestException;
+import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
+import com.todoapp.repository.BoardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Trả lời "user có được thao tác trên board không" mà không phải đọc cả document Board
+@Service
+public class BoardAccessService {
+    
+    private final BoardRepository boardRepository;
+    private final long ttlMs;
+    private final Map<String, BoardAccess> boards;
+    
+    public BoardAccessService(BoardRepository boardRepository,
+                              @Value("${board.access-cache.max-entries:10000}") int maxEntries,
+                              @Value("${board.access-cache.ttl-ms:60000}") long ttlMs) {
+        this.boardRepository = boardRepository;
+        this.ttlMs = ttlMs;
+        // LRU boardId -> quyền của từng thành viên; TTL để nhận thay đổi thành viên từ instance khác
+        this.boards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BoardAccess> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    public void checkAccess(String boardId, String userId, BoardRole required, String deniedMessage) {
+        BoardRole role = roleOf(boardId, userId);
+        if (role == null || !role.allows(required)) {
+            throw new BadRequestException(deniedMessage);
+        }
+    }
+    
+    // null nếu user không phải thành viên của board
+    public BoardRole roleOf(String boardId, String userId) {
+        return access(boardId).roles().get(userId);
+    }
+    
+    public String ownerOf(String boardId) {
+        return access(boardId).ownerId();
+    }
+    
+    // Gọi khi board bị xóa, đổi chủ hoặc thay đổi thành viên
+    public void evict(String boardId) {
+        synchronized (boards) {
+            boards.remove(boardId);
+        }
+    }
+    
+    private BoardAccess access(String boardId) {
+        long now = System.currentTimeMillis();
+        BoardAccess access;
+        synchronized (boards) {
+            access = boards.get(boardId);
+        }
+        if (access != null && now - access.loadedAt() < ttlMs) {
+            return access;
+        }
+        return load(boardId);
+    }
+    
+    // Chỉ lấy ownerId và memberRoles của board chưa bị xóa
+    private BoardAccess load(String boardId) {
+        long now = System.currentTimeMillis();
+        Board board = boardRepository.findAccessById(boardId).orElse(null);
+        if (board == null) {
+            evict(boardId);
+            throw new ResourceNotFoundException("Board", "id", boardId);
+        }
+        Map<String, BoardRole> roles = new HashMap<>();
+        if (board.getMemberRoles() != null) {
+            roles.putAll(board.getMemberRoles());
+        }
+        roles.put(board.getOwnerId(), BoardRole.OWNER);
+        
+        BoardAccess access = new BoardAccess(board.getOwnerId(), Map.copyOf(roles), now);
+        synchronized (boards) {
+            boards.put(boardId, access);
+        }
+        return access;
+    }
+    
+    private record BoardAccess(String ownerId, Map<String, BoardRole> roles, long loadedAt) {
+    }
+}
@@ -0,0 +1,351 @@
+package com.todoapp.service;
+
+import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.exception.ServiceUnavailableException;
+import com.todoapp.model.Board;
+import com.todoapp.repository.BoardRepository;
+import com.todoapp.repository.TaskListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Tuần tự hóa các thay đổi cấu trúc của board (listOrderIds, cardOrderIds, rank) trong process.
+ * Thao tác được xếp hàng theo dải khóa của boardId; luồng nào giữ được khóa sẽ xử lý luôn cả phần
+ * đang chờ của luồng khác, gộp các thay đổi mảng thứ tự thành một lần ghi cho mỗi list/board.
+ * Mỗi thao tác thành công nhận một số thứ tự (seq) tăng dần của board, lưu ở Mongo
+ * (trừ việc bảo trì giữ nguyên thứ tự, xem runPreservingSeq).
+ */
+@Slf4j
+@Service
+public class BoardMutationSequencer {
+    
+    private static final int STRIPES = 256;
+    private static final long WAIT_SLICE_MS = 5;
+    
+    private final BoardRepository boardRepository;
+    private final TaskListRepository taskListRepository;
+    private final int maxBatchSize;
+    private final long timeoutMs;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    
+    public BoardMutationSequencer(BoardRepository boardRepository,
+                                  TaskListRepository taskListRepository,
+                                  @Value("${board.sequencer.max-batch-size:256}") int maxBatchSize,
+                                  @Value("${board.sequencer.timeout-ms:5000}") long timeoutMs) {
+        this.boardRepository = boardRepository;
+        this.taskListRepository = taskListRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMs = timeoutMs;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    public record Sequenced<T>(T value, long seq) {
+    }
+    
+    public long appendList(String boardId, String listId) {
+        return submit(Op.coalesced(boardId, changes -> changes.listOrder.append(listId))).seq();
+    }
+    
+    public long removeList(String boardId, String listId) {
+        return submit(Op.coalesced(boardId, changes -> changes.listOrder.remove(listId))).seq();
+    }
+    
+    public long setListOrder(String boardId, List<String> listIds) {
+        return submit(Op.coalesced(boardId, changes -> changes.listOrder.replace(listIds))).seq();
+    }
+    
+    public long appendCard(String boardId, String listId, String cardId) {
+        return submit(Op.coalesced(boardId, changes -> changes.cardOrder(listId).append(cardId))).seq();
+    }
+    
+    public long removeCard(String boardId, String listId, String cardId) {
+        return submit(Op.coalesced(boardId, changes -> changes.cardOrder(listId).remove(cardId))).seq();
+    }
+    
+    public long setCardOrder(String boardId, String listId, List<String> cardIds) {
+        return submit(Op.coalesced(boardId, changes -> changes.cardOrder(listId).replace(cardIds))).seq();
+    }
+    
+    // Nhiều card cùng lúc (bulk): gỡ khỏi list cũ trước rồi mới thêm vào cuối list mới
+    public long applyCardChanges(String boardId, Map<String, List<String>> removals, Map<String, List<String>> additions) {
+        return submit(Op.coalesced(boardId, changes -> {
+            removals.forEach((listId, cardIds) -> cardIds.forEach(changes.cardOrder(listId)::remove));
+            additions.forEach((listId, cardIds) -> cardIds.forEach(changes.cardOrder(listId)::append));
+        })).seq();
+    }
+    
+    // Thao tác không gộp được (chèn vào giữa list, tính rank): chạy trong lượt của board,
+    // sau khi các thay đổi đang gộp trước đó đã được ghi
+    public <T> Sequenced<T> run(String boardId, Supplier<T> action) {
+        return runAtSeq(boardId, seq -> action.get());
+    }
+    
+    // Như run, nhưng action nhận seq hiện tại của board (ngay trước thao tác này) để so với base của client
+    @SuppressWarnings("unchecked")
+    public <T> Sequenced<T> runAtSeq(String boardId, LongFunction<T> action) {
+        return (Sequenced<T>) submit(Op.exclusive(boardId, action, true));
+    }
+    
+    // Việc bảo trì không đổi thứ tự client nhìn thấy (rải lại rank): vẫn chạy trong lượt của board
+    // nhưng không tăng seq, để baseSeq client đang giữ không bị coi là cũ
+    @SuppressWarnings("unchecked")
+    public <T> Sequenced<T> runPreservingSeq(String boardId, Supplier<T> action) {
+        return (Sequenced<T>) submit(Op.exclusive(boardId, seq -> action.get(), false));
+    }
+    
+    private Sequenced<?> submit(Op op) {
+        Stripe stripe = stripes[(op.boardId.hashCode() & 0x7fffffff) % STRIPES];
+        stripe.queue.add(op);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        
+        while (!op.result.isDone()) {
+            if (stripe.lock.tryLock()) {
+                try {
+                    drain(stripe);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                continue;
+            }
+            if (System.nanoTime() > deadline && stripe.queue.remove(op)) {
+                // Chưa được xử lý: bỏ khỏi hàng đợi, thao tác không có hiệu lực
+                throw new ServiceUnavailableException("Board is busy, please retry");
+            }
+            try {
+                op.result.get(WAIT_SLICE_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Luồng đang giữ khóa có thể vừa xong lượt trước khi thao tác này vào hàng đợi: thử lại
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Board update was interrupted");
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        
+        try {
+            return op.result.join();
+        } catch (RuntimeException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    // Mỗi lần giữ khóa chỉ xử lý một lô, để các luồng khác cũng có lượt
+    private void drain(Stripe stripe) {
+        List<Op> batch = new ArrayList<>();
+        Op op;
+        while (batch.size() < maxBatchSize && (op = stripe.queue.poll()) != null) {
+            batch.add(op);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            process(batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply board mutations", e);
+            batch.forEach(failed -> failed.result.completeExceptionally(e));
+        }
+    }
+    
+    private void process(List<Op> batch) {
+        Map<String, BoardChanges> pending = new LinkedHashMap<>();
+        List<Op> pendingOps = new ArrayList<>();
+        Map<Op, Object> values = new LinkedHashMap<>();
+        Map<String, Long> baseSeqs = new HashMap<>();
+        
+        for (Op op : batch) {
+            if (op.action == null) {
+                op.mutation.accept(pending.computeIfAbsent(op.boardId, id -> new BoardChanges()));
+                pendingOps.add(op);
+                continue;
+            }
+            
+            flush(pending, pendingOps, values);
+            try {
+                long seq = currentSeq(op.boardId, values, baseSeqs);
+                Object value = op.action.apply(seq);
+                if (op.advancesSeq) {
+                    values.put(op, value);
+                } else {
+                    op.result.complete(new Sequenced<>(value, seq));
+                }
+            } catch (RuntimeException e) {
+                op.result.completeExceptionally(e);
+            }
+        }
+        flush(pending, pendingOps, values);
+        
+        // Một lần $inc cho mỗi board, chia dải seq theo thứ tự thao tác trong lô
+        Map<String, List<Op>> byBoard = new LinkedHashMap<>();
+        values.keySet().forEach(op -> byBoard.computeIfAbsent(op.boardId, id -> new ArrayList<>()).add(op));
+        byBoard.forEach((boardId, ops) -> {
+            long last = boardRepository.advanceSeq(boardId, ops.size());
+            if (last == 0) {
+                ResourceNotFoundException missing = new ResourceNotFoundException("Board", "id", boardId);
+                ops.forEach(op -> op.result.completeExceptionally(missing));
+                return;
+            }
+            long seq = last - ops.size();
+            for (Op op : ops) {
+                op.result.complete(new Sequenced<>(values.get(op), ++seq));
+            }
+        });
+    }
+    
+    // Seq đã lưu lúc bắt đầu lô cộng số thao tác thành công của board đứng trước trong lô (chưa được $inc)
+    private long currentSeq(String boardId, Map<Op, Object> values, Map<String, Long> baseSeqs) {
+        long base = baseSeqs.computeIfAbsent(boardId, id -> boardRepository.findSeqById(id)
+                .map(Board::getSeq)
+                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", id)));
+        return base + values.keySet().stream().filter(op -> op.boardId.equals(boardId)).count();
+    }
+    
+    private void flush(Map<String, BoardChanges> pending, List<Op> pendingOps, Map<Op, Object> values) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        Set<String> failedBoards = new LinkedHashSet<>();
+        pending.forEach((boardId, changes) -> {
+            try {
+                changes.listOrder.applyTo((replacement, removals, additions) ->
+                        boardRepository.applyListOrderChanges(boardId, replacement, removals, additions));
+                if (!changes.cardOrders.isEmpty()) {
+                    Map<String, List<String>> replacements = new LinkedHashMap<>();
+                    Map<String, List<String>> removals = new LinkedHashMap<>();
+                    Map<String, List<String>> additions = new LinkedHashMap<>();
+                    changes.cardOrders.forEach((listId, order) -> order.applyTo((replacement, removed, added) -> {
+                        if (replacement != null) {
+                            replacements.put(listId, replacement);
+                        }
+                        if (!removed.isEmpty()) {
+                            removals.put(listId, removed);
+                        }
+                        if (!added.isEmpty()) {
+                            additions.put(listId, added);
+                        }
+                    }));
+                    taskListRepository.applyCardOrderChanges(replacements, removals, additions);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply order changes for board {}", boardId, e);
+                failedBoards.add(boardId);
+                pendingOps.stream()
+                        .filter(op -> op.boardId.equals(boardId))
+                        .forEach(op -> op.result.completeExceptionally(e));
+            }
+        });
+        
+        pendingOps.stream()
+                .filter(op -> !failedBoards.contains(op.boardId))
+                .forEach(op -> values.put(op, null));
+        pending.clear();
+        pendingOps.clear();
+    }
+    
+    private static final class Stripe {
+        private final Queue<Op> queue = new ConcurrentLinkedQueue<>();
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+    
+    private static final class Op {
+        private final String boardId;
+        private final Consumer<BoardChanges> mutation;
+        private final LongFunction<?> action;
+        private final boolean advancesSeq;
+        private final CompletableFuture<Sequenced<?>> result = new CompletableFuture<>();
+        
+        private Op(String boardId, Consumer<BoardChanges> mutation, LongFunction<?> action, boolean advancesSeq) {
+            this.boardId = boardId;
+            this.mutation = mutation;
+            this.action = action;
+            this.advancesSeq = advancesSeq;
+        }
+        
+        // Thay đổi mảng thứ tự, gộp được với các thao tác cùng loại trong lô
+        private static Op coalesced(String boardId, Consumer<BoardChanges> mutation) {
+            return new Op(boardId, mutation, null, true);
+        }
+        
+        private static Op exclusive(String boardId, LongFunction<?> action, boolean advancesSeq) {
+            return new Op(boardId, null, action, advancesSeq);
+        }
+    }
+    
+    // Thay đổi đang gộp của một board: listOrderIds và cardOrderIds của từng list
+    private static final class BoardChanges {
+        private final ArrayChanges listOrder = new ArrayChanges();
+        private final Map<String, ArrayChanges> cardOrders = new LinkedHashMap<>();
+        
+        private ArrayChanges cardOrder(String listId) {
+            return cardOrders.computeIfAbsent(listId, id -> new ArrayChanges());
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ArrayWriter {
+        void write(List<String> replacement, List<String> removals, List<String> additions);
+    }
+    
+    /**
+     * Gộp nhiều thay đổi trên một mảng id: thay cả mảng thì các thao tác sau áp lên bản trong bộ nhớ,
+     * còn lại là tập id cần gỡ và danh sách id cần thêm vào cuối (gỡ trước, thêm sau).
+     */
+    private static final class ArrayChanges {
+        private List<String> replacement;
+        private final Set<String> removals = new LinkedHashSet<>();
+        private final List<String> additions = new ArrayList<>();
+        
+        private void append(String id) {
+            if (replacement != null) {
+                replacement.add(id);
+            } else {
+                additions.add(id);
+            }
+        }
+        
+        private void remove(String id) {
+            if (replacement != null) {
+                replacement.removeIf(id::equals);
+            } else {
+                additions.removeIf(id::equals);
+                removals.add(id);
+            }
+        }
+        
+        private void replace(List<String> ids) {
+            replacement = new ArrayList<>(ids);
+            removals.clear();
+            additions.clear();
+        }
+        
+        private void applyTo(ArrayWriter writer) {
+            if (replacement != null || !removals.isEmpty() || !additions.isEmpty()) {
+                writer.write(replacement, new ArrayList<>(removals), additions);
+            }
+        }
+    }
+}
@@ -1,22 +1,35 @@
 package com.todoapp.service;
 
 import com.todoapp.dto.request.BoardRequest;
+import com.todoapp.dto.request.CardFilter;
+import com.todoapp.dto.request.ReorderRequest;
 import com.todoapp.dto.response.BoardResponse;
+import com.todoapp.dto.response.BoardSummaryPageResponse;
+import com.todoapp.dto.response.BoardSummaryResponse;
 import com.todoapp.dto.response.CardResponse;
+import com.todoapp.dto.response.ReorderResponse;
 import com.todoapp.dto.response.TaskListResponse;
 import com.todoapp.exception.BadRequestException;
 import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.exception.VersionConflictException;
 import com.todoapp.model.Board;
+import com.todoapp.model.BoardRole;
 import com.todoapp.model.Card;
 import com.todoapp.model.TaskList;
 import com.todoapp.repository.BoardRepository;
 import com.todoapp.repository.CardRepository;
 import com.todoapp.repository.TaskListRepository;
+import com.todoapp.repository.UserRepository;
+import com.todoapp.util.BoardCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,41 +38,115 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BoardService {
     
+    private static final int DEFAULT_SUMMARY_PAGE_SIZE = 20;
+    private static final int MAX_SUMMARY_PAGE_SIZE = 100;
+    
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
+    private final UserRepository userRepository;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final RankOrderingService rankOrderingService;
+    private final BoardMutationSequencer boardMutationSequencer;
     private final TaskListRepository taskListRepository;
     private final CardRepository cardRepository;
     
+    // Gồm cả board được chia sẻ: một truy vấn theo index memberIds
     public List<BoardResponse> getBoardsByOwner(String ownerId) {
-        return boardRepository.findByOwnerId(ownerId).stream()
-                .map(BoardResponse::fromEntity)
+        return boardRepository.findByMemberIdsAndDeletedAtIsNull(ownerId).stream()
+                .map(board -> BoardResponse.fromEntity(board, ownerId))
                 .collect(Collectors.toList());
     }
     
-    public BoardResponse getBoardById(String boardId, String userId) {
-        Board board = boardRepository.findById(boardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+    // Trang chủ: board gắn sao trước, hết phần gắn sao thì đọc tiếp phần còn lại từ đầu
+    public BoardSummaryPageResponse getBoardSummaries(String userId, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_SUMMARY_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_SUMMARY_PAGE_SIZE);
+        BoardCursor after = BoardCursor.parse(cursor);
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to access this board");
+        // Lấy dư một phần tử để biết còn trang sau hay không
+        List<Board> boards = new ArrayList<>();
+        if (after == null || after.starred()) {
+            boards.addAll(boardRepository.findSummaryPage(userId, true, after, pageSize + 1));
+        }
+        if (boards.size() <= pageSize) {
+            BoardCursor unstarredAfter = after != null && !after.starred() ? after : null;
+            boards.addAll(boardRepository.findSummaryPage(userId, false, unstarredAfter, pageSize + 1 - boards.size()));
         }
         
-        List<TaskList> lists = taskListRepository.findByBoardId(boardId);
-        List<Card> allCards = cardRepository.findByBoardId(boardId);
+        boolean hasMore = boards.size() > pageSize;
+        if (hasMore) {
+            boards = boards.subList(0, pageSize);
+        }
+        
+        return BoardSummaryPageResponse.builder()
+                .boards(boards.stream()
+                        .map(board -> BoardSummaryResponse.fromEntity(board, userId))
+                        .collect(Collectors.toList()))
+                .nextCursor(hasMore ? BoardCursor.of(boards.get(boards.size() - 1), userId).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+    
+    // Revision của snapshot dùng chung kèm cờ gắn sao của riêng user, cả hai cùng quyết định ETag
+    public record BoardVersion(long revision, boolean starred) {
         
-        Map<String, List<Card>> cardsByListId = allCards.stream()
+        public String etag() {
+            return "\"" + revision + (starred ? "-starred" : "") + "\"";
+        }
+    }
+    
+    public BoardResponse getBoardById(String boardId, String userId) {
+        return getBoardById(boardId, userId, getBoardVersion(boardId, userId));
+    }
+    
+    public BoardVersion getBoardVersion(String boardId, String userId) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.VIEWER, "You don't have permission to access this board");
+        return new BoardVersion(boardSnapshotCache.currentRevision(boardId),
+                boardRepository.existsByIdAndStarredBy(boardId, userId));
+    }
+    
+    public BoardResponse getBoardById(String boardId, String userId, BoardVersion version) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.VIEWER, "You don't have permission to access this board");
+        long revision = version.revision();
+        
+        // Snapshot giống nhau với mọi thành viên nên dùng chung cache; chỉ cờ gắn sao là của riêng từng người
+        BoardResponse board = boardSnapshotCache.get(boardId, revision).orElse(null);
+        if (board == null) {
+            board = boardRepository.findBoardTree(boardId, rankOrderingService.getMode())
+                    .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+            boardSnapshotCache.put(boardId, revision, board);
+        }
+        return board.toBuilder()
+                .isStarred(version.starred())
+                .build();
+    }
+    
+    // Chỉ đọc các card khớp bộ lọc (qua index của cards), không dùng snapshot cache vì mỗi bộ lọc một kết quả.
+    // List vẫn trả đủ để giữ bố cục board, cardOrderIds chỉ còn các card khớp
+    public BoardResponse getFilteredBoard(String boardId, String userId, CardFilter filter) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.VIEWER, "You don't have permission to access this board");
+        Board board = boardRepository.findById(boardId)
+                .filter(found -> found.getDeletedAt() == null)
+                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+        
+        List<TaskList> lists = rankOrderingService.sortLists(board, taskListRepository.findByBoardIdAndDeletedAtIsNull(boardId));
+        Map<String, List<Card>> cardsByList = cardRepository.findByBoardFilter(boardId, filter).stream()
+                .filter(card -> card.getListId() != null)
                 .collect(Collectors.groupingBy(Card::getListId));
         
-        List<TaskListResponse> listResponses = lists.stream()
-                .map(list -> {
-                    List<Card> listCards = cardsByListId.getOrDefault(list.getId(), new ArrayList<>());
-                    List<CardResponse> cardResponses = listCards.stream()
-                            .map(CardResponse::fromEntity)
-                            .collect(Collectors.toList());
-                    return TaskListResponse.fromEntityWithCards(list, cardResponses);
-                })
-                .collect(Collectors.toList());
+        List<TaskListResponse> listResponses = new ArrayList<>();
+        for (TaskList list : lists) {
+            List<CardResponse> cards = rankOrderingService.sortCards(list, cardsByList.getOrDefault(list.getId(), List.of()))
+                    .stream()
+                    .map(CardResponse::fromEntity)
+                    .collect(Collectors.toList());
+            TaskListResponse response = TaskListResponse.fromEntityWithCards(list, cards);
+            response.setCardOrderIds(cards.stream().map(CardResponse::getId).collect(Collectors.toList()));
+            listResponses.add(response);
+        }
         
-        return BoardResponse.fromEntityWithLists(board, listResponses);
+        BoardResponse response = BoardResponse.fromEntityWithLists(board, userId, listResponses);
+        response.setListOrderIds(lists.stream().map(TaskList::getId).collect(Collectors.toList()));
+        return response;
     }
     
     public BoardResponse createBoard(BoardRequest request, String ownerId) {
@@ -68,72 +155,196 @@ public class BoardService {
                 .description(request.getDescription())
                 .background(request.getBackground())
                 .ownerId(ownerId)
+                .memberIds(new ArrayList<>(List.of(ownerId)))
+                .memberRoles(new HashMap<>(Map.of(ownerId, BoardRole.OWNER)))
                 .listOrderIds(new ArrayList<>())
                 .build();
         
         board = boardRepository.save(board);
-        return BoardResponse.fromEntity(board);
+        return BoardResponse.fromEntity(board, ownerId);
     }
     
+    // Một lệnh findAndModify chỉ $set các field có trong request; lệch version trả 409 kèm board hiện tại
     public BoardResponse updateBoard(String boardId, BoardRequest request, String userId) {
-        Board board = boardRepository.findById(boardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this board");
-        }
+        boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to update this board");
         
+        Map<String, Object> changes = new LinkedHashMap<>();
         if (request.getTitle() != null) {
-            board.setTitle(request.getTitle());
+            if (!StringUtils.hasText(request.getTitle())) {
+                throw new BadRequestException("Title is required");
+            }
+            changes.put("title", request.getTitle());
         }
         if (request.getDescription() != null) {
-            board.setDescription(request.getDescription());
+            changes.put("description", request.getDescription());
         }
         if (request.getBackground() != null) {
-            board.setBackground(request.getBackground());
+            changes.put("background", request.getBackground());
+        }
+        if (changes.isEmpty()) {
+            return boardRepository.findById(boardId)
+                    .map(board -> BoardResponse.fromEntity(board, userId))
+                    .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
         }
         
-        board = boardRepository.save(board);
-        return BoardResponse.fromEntity(board);
+        Board board = boardRepository.patch(boardId, changes, request.getVersion())
+                .orElseThrow(() -> {
+                    Board current = boardRepository.findById(boardId)
+                            .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+                    return new VersionConflictException("Board was modified by another request", BoardResponse.fromEntity(current, userId));
+                });
+        boardSnapshotCache.markChanged(boardId);
+        return BoardResponse.fromEntity(board, userId);
     }
     
+    // Gắn sao chỉ ảnh hưởng trang chủ của chính người gắn nên người xem cũng được phép
     public BoardResponse toggleStar(String boardId, String userId) {
-        Board board = boardRepository.findById(boardId)
+        boardAccessService.checkAccess(boardId, userId, BoardRole.VIEWER, "You don't have permission to access this board");
+        // Không đổi revision: snapshot dùng chung không chứa sao, ETag của riêng người này đổi theo BoardVersion
+        Board board = boardRepository.toggleStar(boardId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this board");
+        return BoardResponse.fromEntity(board, userId);
+    }
+    
+    // Đánh dấu xóa ngay để board biến mất khỏi mọi truy vấn, list và card do DeletionReaper dọn dần
+    public void deleteBoard(String boardId, String userId) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.OWNER, "You don't have permission to delete this board");
+        if (!boardRepository.markDeleted(boardId)) {
+            throw new ResourceNotFoundException("Board", "id", boardId);
         }
         
-        board.setIsStarred(!board.getIsStarred());
-        board = boardRepository.save(board);
-        return BoardResponse.fromEntity(board);
+        // Tăng revision thay vì xóa: instance khác đang giữ snapshot revision 0 cũng phải đọc lại và nhận 404
+        boardSnapshotCache.markChanged(boardId);
+        boardAccessService.evict(boardId);
     }
     
-    @Transactional
-    public void deleteBoard(String boardId, String userId) {
+    public BoardResponse updateListOrder(String boardId, List<String> listOrderIds, String userId) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to update this board");
         Board board = boardRepository.findById(boardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to delete this board");
+        long seq = rankOrderingService.isEnabled()
+                ? boardMutationSequencer.run(boardId, () -> {
+                    rankOrderingService.assignListRanks(boardId, listOrderIds);
+                    return null;
+                }).seq()
+                : boardMutationSequencer.setListOrder(boardId, listOrderIds);
+        boardSnapshotCache.markChanged(boardId);
+        
+        board.setListOrderIds(listOrderIds);
+        board.setSeq(seq);
+        return BoardResponse.fromEntity(board, userId);
+    }
+    
+    // Kéo thả một list: "đặt id sau afterId" kèm seq mà client đang thấy, base cũ thì trả 409
+    public ReorderResponse moveListAfter(String boardId, ReorderRequest request, String userId) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to update this board");
+        if (request.getId().equals(request.getAfterId())) {
+            throw new BadRequestException("A list cannot be placed after itself");
         }
         
-        cardRepository.deleteByBoardId(boardId);
-        taskListRepository.deleteByBoardId(boardId);
-        boardRepository.delete(board);
+        BoardMutationSequencer.Sequenced<Integer> moved = boardMutationSequencer.runAtSeq(boardId, seq -> {
+            if (request.getBaseSeq() != seq) {
+                throw new VersionConflictException("Board order changed since it was loaded, please reload",
+                        ReorderResponse.builder().id(request.getId()).seq(seq).build());
+            }
+            requireListInBoard(request.getId(), boardId);
+            if (request.getAfterId() != null) {
+                requireListInBoard(request.getAfterId(), boardId);
+            }
+            
+            List<String> order = currentListOrder(boardId);
+            order.removeIf(request.getId()::equals);
+            int index = request.getAfterId() == null ? 0 : order.indexOf(request.getAfterId()) + 1;
+            if (index == 0 && request.getAfterId() != null) {
+                throw new BadRequestException("List " + request.getAfterId() + " is not in the board order");
+            }
+            order.add(index, request.getId());
+            
+            // Board thường chỉ có vài chục list nên ghi lại cả thứ tự (hoặc rải lại rank) vẫn rẻ
+            if (rankOrderingService.isEnabled()) {
+                rankOrderingService.assignListRanks(boardId, order);
+            } else {
+                boardRepository.applyListOrderChanges(boardId, order, List.of(), List.of());
+            }
+            return index;
+        });
+        boardSnapshotCache.markChanged(boardId);
+        
+        return ReorderResponse.builder()
+                .id(request.getId())
+                .afterId(request.getAfterId())
+                .position(moved.value())
+                .seq(moved.seq())
+                .build();
     }
     
-    public BoardResponse updateListOrder(String boardId, List<String> listOrderIds, String userId) {
+    // Cùng thứ tự client nhìn thấy khi đọc board: list thiếu trong listOrderIds xếp cuối, id thừa bị bỏ
+    private List<String> currentListOrder(String boardId) {
         Board board = boardRepository.findById(boardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+        return rankOrderingService.sortLists(board, taskListRepository.findByBoardIdAndDeletedAtIsNull(boardId)).stream()
+                .map(TaskList::getId)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+    
+    private void requireListInBoard(String listId, String boardId) {
+        if (!taskListRepository.existsByIdAndBoardIdAndDeletedAtIsNull(listId, boardId)) {
+            throw new BadRequestException("List " + listId + " does not belong to this board");
+        }
+    }
+    
+    public BoardResponse setMemberRole(String boardId, String memberId, BoardRole role, String userId) {
+        boardAccessService.checkAccess(boardId, userId, BoardRole.OWNER, "Only the board owner can manage members");
+        if (role == BoardRole.OWNER) {
+            throw new BadRequestException("Board ownership cannot be assigned");
+        }
+        if (memberId.equals(boardAccessService.ownerOf(boardId))) {
+            throw new BadRequestException("Cannot change the role of the board owner");
+        }
+        if (!userRepository.existsById(memberId)) {
+            throw new ResourceNotFoundException("User", "id", memberId);
+        }
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this board");
+        boardRepository.setMemberRole(boardId, memberId, role);
+        return afterMembershipChange(boardId, userId);
+    }
+    
+    // Owner xóa thành viên, hoặc thành viên tự rời board; người vừa rời không nhận lại nội dung board
+    public BoardResponse removeMember(String boardId, String memberId, String userId) {
+        boolean leaving = memberId.equals(userId);
+        if (leaving) {
+            boardAccessService.checkAccess(boardId, userId, BoardRole.VIEWER, "You are not a member of this board");
+        } else {
+            boardAccessService.checkAccess(boardId, userId, BoardRole.OWNER, "Only the board owner can manage members");
+        }
+        if (memberId.equals(boardAccessService.ownerOf(boardId))) {
+            throw new BadRequestException("The board owner cannot be removed");
         }
         
-        board.setListOrderIds(listOrderIds);
-        board = boardRepository.save(board);
-        return BoardResponse.fromEntity(board);
+        if (!boardRepository.removeMember(boardId, memberId)) {
+            return leaving ? null : getBoardById(boardId, userId);
+        }
+        if (leaving) {
+            boardAccessService.evict(boardId);
+            boardSnapshotCache.markChanged(boardId);
+            return null;
+        }
+        return afterMembershipChange(boardId, userId);
+    }
+    
+    private BoardResponse afterMembershipChange(String boardId, String userId) {
+        boardAccessService.evict(boardId);
+        boardSnapshotCache.markChanged(boardId);
+        return boardRepository.findById(boardId)
+                .map(board -> BoardResponse.fromEntity(board, userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillBoards() {
+        boardRepository.backfillMembers();
+        boardRepository.backfillStars();
+        boardRepository.backfillCounts();
     }
 }
@@ -0,0 +1,71 @@
+package com.todoapp.service;
+
+import com.todoapp.dto.response.BoardResponse;
+import com.todoapp.model.BoardRevision;
+import com.todoapp.repository.BoardRevisionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class BoardSnapshotCache {
+    
+    private final BoardRevisionRepository boardRevisionRepository;
+    private final Map<String, Snapshot> snapshots;
+    
+    public BoardSnapshotCache(BoardRevisionRepository boardRevisionRepository,
+                              @Value("${board.snapshot-cache.max-entries:500}") int maxEntries) {
+        this.boardRevisionRepository = boardRevisionRepository;
+        // LRU: bỏ board ít được mở nhất khi vượt quá giới hạn
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    public long currentRevision(String boardId) {
+        return boardRevisionRepository.findById(boardId)
+                .map(BoardRevision::getRevision)
+                .orElse(0L);
+    }
+    
+    public Optional<BoardResponse> get(String boardId, long revision) {
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(boardId);
+        }
+        if (snapshot == null || snapshot.revision() != revision) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot.board());
+    }
+    
+    public void put(String boardId, long revision, BoardResponse board) {
+        synchronized (snapshots) {
+            Snapshot current = snapshots.get(boardId);
+            if (current == null || current.revision() <= revision) {
+                snapshots.put(boardId, new Snapshot(revision, board));
+            }
+        }
+    }
+    
+    public long markChanged(String boardId) {
+        long revision = boardRevisionRepository.increment(boardId);
+        evict(boardId);
+        return revision;
+    }
+    
+    private void evict(String boardId) {
+        synchronized (snapshots) {
+            snapshots.remove(boardId);
+        }
+    }
+    
+    private record Snapshot(long revision, BoardResponse board) {
+    }
+}
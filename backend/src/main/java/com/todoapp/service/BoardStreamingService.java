@@ -0,0 +1,188 @@
+package com.todoapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.todoapp.dto.response.CardResponse;
+import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.model.Board;
+import com.todoapp.model.Card;
+import com.todoapp.model.OrderingMode;
+import com.todoapp.model.TaskList;
+import com.todoapp.repository.BoardRepository;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.TaskListRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Ghi board ra JSON cùng dạng với {@code ApiResponse<BoardResponse>}, nhưng đọc card theo cursor và ghi
+ * dần vào response thay vì dựng cả cây DTO trong heap. Bộ nhớ chỉ phụ thuộc vào số list, không vào số card.
+ */
+@Service
+public class BoardStreamingService {
+    
+    // Chế độ ARRAY: đọc card theo từng lô id trong cardOrderIds để giữ đúng thứ tự
+    private static final int CARD_BATCH_SIZE = 500;
+    
+    private final BoardRepository boardRepository;
+    private final TaskListRepository taskListRepository;
+    private final CardRepository cardRepository;
+    private final RankOrderingService rankOrderingService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    
+    public BoardStreamingService(BoardRepository boardRepository,
+                                 TaskListRepository taskListRepository,
+                                 CardRepository cardRepository,
+                                 RankOrderingService rankOrderingService,
+                                 ObjectMapper objectMapper) {
+        this.boardRepository = boardRepository;
+        this.taskListRepository = taskListRepository;
+        this.cardRepository = cardRepository;
+        this.rankOrderingService = rankOrderingService;
+        this.objectMapper = objectMapper;
+        // Không flush sau mỗi card, để buffer của generator gom thành các lần ghi lớn
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+    
+    // Quyền truy cập phải được kiểm tra trước khi gọi
+    public void writeBoard(String boardId, String userId, OutputStream out) throws IOException {
+        Board board = boardRepository.findById(boardId)
+                .filter(found -> found.getDeletedAt() == null)
+                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
+        boolean rankMode = rankOrderingService.getMode() == OrderingMode.RANK;
+        List<TaskList> lists = rankOrderingService.sortLists(board,
+                taskListRepository.findByBoardIdAndDeletedAtIsNull(board.getId()));
+        
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeNullField("message");
+            generator.writeFieldName("data");
+            
+            generator.writeStartObject();
+            writeField(generator, "id", board.getId());
+            writeField(generator, "title", board.getTitle());
+            writeField(generator, "description", board.getDescription());
+            writeField(generator, "background", board.getBackground());
+            writeField(generator, "ownerId", board.getOwnerId());
+            writeField(generator, "memberRoles", board.getMemberRoles());
+            writeField(generator, "isStarred", board.getStarredBy() != null && board.getStarredBy().contains(userId));
+            writeField(generator, "listOrderIds", rankMode
+                    ? lists.stream().map(TaskList::getId).toList()
+                    : board.getListOrderIds());
+            generator.writeArrayFieldStart("lists");
+            for (TaskList list : lists) {
+                writeList(generator, list, rankMode);
+            }
+            generator.writeEndArray();
+            writeField(generator, "createdAt", board.getCreatedAt());
+            writeField(generator, "updatedAt", board.getUpdatedAt());
+            writeField(generator, "version", board.getVersion());
+            writeField(generator, "seq", board.getSeq());
+            generator.writeEndObject();
+            
+            generator.writeEndObject();
+        }
+    }
+    
+    private void writeList(JsonGenerator generator, TaskList list, boolean rankMode) throws IOException {
+        generator.writeStartObject();
+        writeField(generator, "id", list.getId());
+        writeField(generator, "title", list.getTitle());
+        writeField(generator, "boardId", list.getBoardId());
+        writeField(generator, "rank", list.getRank());
+        
+        generator.writeArrayFieldStart("cardOrderIds");
+        if (rankMode) {
+            // Thứ tự tính từ rank: đọc riêng một lượt chỉ lấy id
+            try (Stream<Card> ids = cardRepository.streamIdsByListIdInRankOrder(list.getId())) {
+                for (Iterator<Card> it = ids.iterator(); it.hasNext(); ) {
+                    generator.writeString(it.next().getId());
+                }
+            }
+        } else {
+            for (String cardId : list.getCardOrderIds()) {
+                generator.writeString(cardId);
+            }
+        }
+        generator.writeEndArray();
+        
+        generator.writeArrayFieldStart("cards");
+        if (rankMode) {
+            try (Stream<Card> cards = cardRepository.streamByListIdInRankOrder(list.getId())) {
+                writeCards(generator, cards.iterator());
+            }
+        } else {
+            writeCardsInArrayOrder(generator, list);
+        }
+        generator.writeEndArray();
+        
+        writeField(generator, "createdAt", list.getCreatedAt());
+        writeField(generator, "updatedAt", list.getUpdatedAt());
+        writeField(generator, "version", list.getVersion());
+        // Các field chỉ có ở phản hồi thao tác ghi hoặc đọc list theo trang, giữ cho giống TaskListResponse
+        generator.writeNullField("seq");
+        generator.writeNullField("cardCount");
+        generator.writeNullField("nextOffset");
+        generator.writeEndObject();
+    }
+    
+    private void writeCardsInArrayOrder(JsonGenerator generator, TaskList list) throws IOException {
+        Set<String> orderedIds = new LinkedHashSet<>(list.getCardOrderIds());
+        List<String> batch = new ArrayList<>(CARD_BATCH_SIZE);
+        for (String cardId : orderedIds) {
+            batch.add(cardId);
+            if (batch.size() == CARD_BATCH_SIZE) {
+                writeBatch(generator, list.getId(), batch);
+                batch.clear();
+            }
+        }
+        writeBatch(generator, list.getId(), batch);
+        
+        // Card thuộc list nhưng chưa có trong cardOrderIds: xếp cuối theo thời gian tạo
+        try (Stream<Card> unordered = cardRepository.findByListIdAndIdNotInOrderByCreatedAtAsc(list.getId(), orderedIds)) {
+            writeCards(generator, unordered.iterator());
+        }
+    }
+    
+    private void writeBatch(JsonGenerator generator, String listId, List<String> cardIds) throws IOException {
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        Map<String, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findByListIdAndIdIn(listId, cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        for (String cardId : cardIds) {
+            Card card = cards.get(cardId);
+            if (card != null) {
+                writer.writeValue(generator, CardResponse.fromEntity(card));
+            }
+        }
+    }
+    
+    private void writeCards(JsonGenerator generator, Iterator<Card> cards) throws IOException {
+        while (cards.hasNext()) {
+            writer.writeValue(generator, CardResponse.fromEntity(cards.next()));
+        }
+    }
+    
+    private void writeField(JsonGenerator generator, String name, Object value) throws IOException {
+        generator.writeFieldName(name);
+        writer.writeValue(generator, value);
+    }
+}
@@ -0,0 +1,357 @@
+package com.todoapp.service;
+
+import com.todoapp.dto.request.BulkCardOperation;
+import com.todoapp.dto.request.BulkCardRequest;
+import com.todoapp.dto.request.CardRequest;
+import com.todoapp.dto.response.BulkCardResponse;
+import com.todoapp.dto.response.BulkCardResult;
+import com.todoapp.exception.BadRequestException;
+import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.model.BoardRole;
+import com.todoapp.model.Card;
+import com.todoapp.model.TaskList;
+import com.todoapp.repository.BoardRepository;
+import com.todoapp.repository.CardBulkWrite;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.TaskListRepository;
+import com.todoapp.util.RankKeys;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Áp dụng nhiều thao tác card trong một request: đọc card/list một lượt, kiểm tra quyền một lần cho mỗi
+ * board; insert và update thường ghi chung một lệnh bulk, thao tác có điều kiện ghi riêng từng lệnh.
+ * Thao tác lỗi không làm hỏng các thao tác còn lại.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardBulkService {
+    
+    private final CardRepository cardRepository;
+    private final TaskListRepository taskListRepository;
+    private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final RankOrderingService rankOrderingService;
+    private final BoardMutationSequencer boardMutationSequencer;
+    
+    public BulkCardResponse applyBulk(BulkCardRequest request, String userId) {
+        Batch batch = new Batch(request.getOperations(), userId);
+        List<BulkCardOperation> operations = request.getOperations();
+        for (int i = 0; i < operations.size(); i++) {
+            BulkCardOperation operation = operations.get(i);
+            try {
+                batch.prepare(i, operation);
+            } catch (RuntimeException e) {
+                batch.results[i] = BulkCardResult.failure(i, operation.getCardId(), e.getMessage());
+            }
+        }
+        batch.execute();
+        
+        List<BulkCardResult> results = Arrays.asList(batch.results);
+        int succeeded = (int) results.stream().filter(BulkCardResult::getSuccess).count();
+        return BulkCardResponse.builder()
+                .results(results)
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .build();
+    }
+    
+    // Thay đổi đi kèm một thao tác ghi card, chỉ áp dụng khi thao tác đó thành công.
+    // rankInList: list mà card cần rank cuối (chế độ rank), rank chỉ được tính trong lượt của board
+    private record PendingWrite(int index, CardBulkWrite write, String boardId,
+                                String removeFromList, String addToList, String rankInList,
+                                long cardDelta, long completedDelta) {
+    }
+    
+    private class Batch {
+        
+        private final String userId;
+        private final BulkCardResult[] results;
+        private final Map<String, Card> cards;
+        private final Map<String, TaskList> lists;
+        private final Map<String, RuntimeException> accessByBoard = new HashMap<>();
+        private final Set<String> touchedCards = new HashSet<>();
+        private final List<PendingWrite> pending = new ArrayList<>();
+        
+        Batch(List<BulkCardOperation> operations, String userId) {
+            this.userId = userId;
+            this.results = new BulkCardResult[operations.size()];
+            
+            // Một lượt đọc cho tất cả card và list được nhắc tới
+            Set<String> cardIds = operations.stream()
+                    .map(BulkCardOperation::getCardId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            this.cards = cardRepository.findAllById(cardIds).stream()
+                    .collect(Collectors.toMap(Card::getId, Function.identity()));
+            
+            Set<String> listIds = operations.stream()
+                    .map(BulkCardOperation::getListId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(HashSet::new));
+            cards.values().stream().map(Card::getListId).filter(Objects::nonNull).forEach(listIds::add);
+            this.lists = taskListRepository.findAllById(listIds).stream()
+                    .filter(list -> list.getDeletedAt() == null)
+                    .collect(Collectors.toMap(TaskList::getId, Function.identity()));
+        }
+        
+        void prepare(int index, BulkCardOperation operation) {
+            switch (operation.getType()) {
+                case CREATE -> prepareCreate(index, operation);
+                case UPDATE -> prepareUpdate(index, operation);
+                case MOVE -> prepareMove(index, operation);
+                case DELETE -> prepareDelete(index, operation);
+            }
+        }
+        
+        private void prepareCreate(int index, BulkCardOperation operation) {
+            TaskList list = requireList(operation.getListId());
+            CardRequest request = operation.getCard();
+            if (request == null || !StringUtils.hasText(request.getTitle())) {
+                throw new BadRequestException("Title is required");
+            }
+            requireAccess(list.getBoardId());
+            
+            // Id gán trước để trả về ngay và để thêm vào cardOrderIds
+            LocalDateTime now = LocalDateTime.now();
+            Card card = Card.builder()
+                    .id(new ObjectId().toHexString())
+                    .title(request.getTitle())
+                    .description(request.getDescription())
+                    .cover(request.getCover())
+                    .boardId(list.getBoardId())
+                    .listId(list.getId())
+                    .memberIds(request.getMemberIds() != null ? request.getMemberIds() : new ArrayList<>())
+                    .labels(request.getLabels() != null ? request.getLabels() : new ArrayList<>())
+                    .startDate(request.getStartDate())
+                    .dueDate(request.getDueDate())
+                    .isCompleted(false)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build();
+            
+            pending.add(new PendingWrite(index, CardBulkWrite.insert(card), list.getBoardId(),
+                    null, arrayMode() ? list.getId() : null, arrayMode() ? null : list.getId(), 1, 0));
+        }
+        
+        private void prepareUpdate(int index, BulkCardOperation operation) {
+            Card card = requireCard(operation.getCardId());
+            CardRequest request = operation.getCard();
+            if (request == null) {
+                throw new BadRequestException("Card fields are required");
+            }
+            
+            Map<String, Object> changes = new LinkedHashMap<>();
+            if (request.getTitle() != null) {
+                if (!StringUtils.hasText(request.getTitle())) {
+                    throw new BadRequestException("Title is required");
+                }
+                changes.put("title", request.getTitle());
+            }
+            putIfPresent(changes, "description", request.getDescription());
+            putIfPresent(changes, "cover", request.getCover());
+            putIfPresent(changes, "memberIds", request.getMemberIds());
+            putIfPresent(changes, "labels", request.getLabels());
+            putIfPresent(changes, "startDate", request.getStartDate());
+            putIfPresent(changes, "dueDate", request.getDueDate());
+            putIfPresent(changes, "isCompleted", request.getIsCompleted());
+            if (changes.isEmpty()) {
+                results[index] = BulkCardResult.success(index, card.getId());
+                return;
+            }
+            
+            long completedDelta = 0;
+            if (request.getIsCompleted() != null) {
+                boolean wasCompleted = Boolean.TRUE.equals(card.getIsCompleted());
+                if (request.getIsCompleted() != wasCompleted) {
+                    completedDelta = request.getIsCompleted() ? 1 : -1;
+                }
+            }
+            // Filter kèm trạng thái isCompleted đã đọc: card vừa bị đổi ở request khác thì thao tác này báo lỗi,
+            // nhờ vậy completedDelta luôn khớp với thay đổi thật
+            Boolean expectedCompleted = request.getIsCompleted() != null
+                    ? Boolean.TRUE.equals(card.getIsCompleted())
+                    : null;
+            pending.add(new PendingWrite(index, CardBulkWrite.update(card.getId(), changes, expectedCompleted),
+                    card.getBoardId(), null, null, null, 0, completedDelta));
+        }
+        
+        private void prepareMove(int index, BulkCardOperation operation) {
+            Card card = requireCard(operation.getCardId());
+            TaskList target = requireList(operation.getListId());
+            if (!target.getBoardId().equals(card.getBoardId())) {
+                throw new BadRequestException("Cannot move card to a list in different board");
+            }
+            if (target.getId().equals(card.getListId())) {
+                results[index] = BulkCardResult.success(index, card.getId());
+                return;
+            }
+            
+            CardBulkWrite write = CardBulkWrite.move(card.getId(), card.getListId(), target.getId(), null);
+            pending.add(new PendingWrite(index, write, card.getBoardId(),
+                    arrayMode() ? card.getListId() : null, arrayMode() ? target.getId() : null,
+                    arrayMode() ? null : target.getId(), 0, 0));
+        }
+        
+        private void prepareDelete(int index, BulkCardOperation operation) {
+            Card card = requireCard(operation.getCardId());
+            boolean completed = Boolean.TRUE.equals(card.getIsCompleted());
+            pending.add(new PendingWrite(index, CardBulkWrite.delete(card.getId(), card.getListId(), completed),
+                    card.getBoardId(),
+                    arrayMode() ? card.getListId() : null, null, null,
+                    -1, completed ? -1 : 0));
+        }
+        
+        void execute() {
+            Map<Integer, String> failures = arrayMode()
+                    ? cardRepository.applyBulk(pending.stream().map(PendingWrite::write).toList())
+                    : applyRanked();
+            
+            // Thay đổi cardOrderIds gom theo board rồi theo list
+            Map<String, Map<String, List<String>>> removals = new LinkedHashMap<>();
+            Map<String, Map<String, List<String>>> additions = new LinkedHashMap<>();
+            Map<String, long[]> countDeltas = new LinkedHashMap<>();
+            for (int i = 0; i < pending.size(); i++) {
+                PendingWrite write = pending.get(i);
+                String cardId = write.write().cardId();
+                if (failures.containsKey(i)) {
+                    results[write.index()] = BulkCardResult.failure(write.index(), cardId, failures.get(i));
+                    continue;
+                }
+                
+                results[write.index()] = BulkCardResult.success(write.index(), cardId);
+                if (write.removeFromList() != null) {
+                    removals.computeIfAbsent(write.boardId(), k -> new LinkedHashMap<>())
+                            .computeIfAbsent(write.removeFromList(), k -> new ArrayList<>()).add(cardId);
+                }
+                if (write.addToList() != null) {
+                    additions.computeIfAbsent(write.boardId(), k -> new LinkedHashMap<>())
+                            .computeIfAbsent(write.addToList(), k -> new ArrayList<>()).add(cardId);
+                }
+                long[] deltas = countDeltas.computeIfAbsent(write.boardId(), k -> new long[2]);
+                deltas[0] += write.cardDelta();
+                deltas[1] += write.completedDelta();
+            }
+            
+            countDeltas.forEach((boardId, deltas) -> {
+                if (removals.containsKey(boardId) || additions.containsKey(boardId)) {
+                    boardMutationSequencer.applyCardChanges(boardId,
+                            removals.getOrDefault(boardId, Map.of()), additions.getOrDefault(boardId, Map.of()));
+                }
+                boardRepository.incrementCounts(boardId, 0, deltas[0], deltas[1]);
+                boardSnapshotCache.markChanged(boardId);
+            });
+        }
+        
+        // Chế độ rank: rank cuối list chỉ đúng khi được tính và ghi trong cùng một lượt của board,
+        // nên mỗi board một lệnh bulk chạy qua sequencer (seq của board cũng tăng theo)
+        private Map<Integer, String> applyRanked() {
+            Map<String, List<Integer>> byBoard = new LinkedHashMap<>();
+            for (int i = 0; i < pending.size(); i++) {
+                byBoard.computeIfAbsent(pending.get(i).boardId(), k -> new ArrayList<>()).add(i);
+            }
+            
+            Map<Integer, String> failures = new HashMap<>();
+            byBoard.forEach((boardId, positions) -> {
+                try {
+                    Map<Integer, String> boardFailures = boardMutationSequencer.run(boardId, () -> {
+                        Map<String, String> lastRankByList = new HashMap<>();
+                        return cardRepository.applyBulk(positions.stream()
+                                .map(i -> ranked(pending.get(i), lastRankByList))
+                                .toList());
+                    }).value();
+                    boardFailures.forEach((position, message) -> failures.put(positions.get(position), message));
+                } catch (RuntimeException e) {
+                    positions.forEach(i -> failures.put(i, e.getMessage()));
+                }
+            });
+            return failures;
+        }
+        
+        // Các card liên tiếp vào cùng một list nhận rank tăng dần, chỉ đọc rank cuối một lần
+        private CardBulkWrite ranked(PendingWrite write, Map<String, String> lastRankByList) {
+            String listId = write.rankInList();
+            if (listId == null) {
+                return write.write();
+            }
+            String previous = lastRankByList.get(listId);
+            String rank = previous == null ? rankOrderingService.nextCardRank(listId) : RankKeys.between(previous, null);
+            lastRankByList.put(listId, rank);
+            return write.write().withRank(rank);
+        }
+        
+        private Card requireCard(String cardId) {
+            if (cardId == null) {
+                throw new BadRequestException("Card ID is required");
+            }
+            Card card = cards.get(cardId);
+            // Card trong list đã xóa coi như không còn
+            if (card == null || (card.getListId() != null && !lists.containsKey(card.getListId()))) {
+                throw new ResourceNotFoundException("Card", "id", cardId);
+            }
+            if (card.getBoardId() == null) {
+                throw new BadRequestException("Standalone cards are not supported in bulk operations");
+            }
+            // Mỗi card chỉ một thao tác, vì bulk không thứ tự không đảm bảo thứ tự ghi
+            if (!touchedCards.add(cardId)) {
+                throw new BadRequestException("Card appears more than once in this request");
+            }
+            requireAccess(card.getBoardId());
+            return card;
+        }
+        
+        private TaskList requireList(String listId) {
+            if (listId == null) {
+                throw new BadRequestException("List ID is required");
+            }
+            TaskList list = lists.get(listId);
+            if (list == null) {
+                throw new ResourceNotFoundException("List", "id", listId);
+            }
+            return list;
+        }
+        
+        // Quyền được kiểm tra một lần cho mỗi board, kết quả (kể cả lỗi) dùng lại cho các thao tác sau
+        private void requireAccess(String boardId) {
+            if (!accessByBoard.containsKey(boardId)) {
+                RuntimeException error = null;
+                try {
+                    boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to update this board");
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                accessByBoard.put(boardId, error);
+            }
+            RuntimeException denied = accessByBoard.get(boardId);
+            if (denied != null) {
+                throw denied;
+            }
+        }
+        
+        private boolean arrayMode() {
+            return !rankOrderingService.isEnabled();
+        }
+        
+        private static void putIfPresent(Map<String, Object> changes, String field, Object value) {
+            if (value != null) {
+                changes.put(field, value);
+            }
+        }
+    }
+}
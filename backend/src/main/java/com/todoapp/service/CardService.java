@@ -4,8 +4,10 @@ import com.todoapp.dto.request.CardRequest;
 import com.todoapp.dto.request.MoveCardRequest;
 import com.todoapp.dto.response.CardResponse;
 import com.todoapp.exception.BadRequestException;
+import com.todoapp.exception.ConflictException;
 import com.todoapp.exception.ResourceNotFoundException;
-import com.todoapp.model.Board;
+import com.todoapp.exception.VersionConflictException;
+import com.todoapp.model.BoardRole;
 import com.todoapp.model.Card;
 import com.todoapp.model.TaskList;
 import com.todoapp.repository.BoardRepository;
@@ -14,9 +16,11 @@ import com.todoapp.repository.TaskListRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -25,17 +29,16 @@ public class CardService {
     private final CardRepository cardRepository;
     private final TaskListRepository taskListRepository;
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final RankOrderingService rankOrderingService;
+    private final BoardMutationSequencer boardMutationSequencer;
     
     public CardResponse createCard(String listId, CardRequest request, String userId) {
-        TaskList taskList = taskListRepository.findById(listId)
+        TaskList taskList = taskListRepository.findByIdAndDeletedAtIsNull(listId)
                 .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
         
-        Board board = boardRepository.findById(taskList.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", taskList.getBoardId()));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to add card to this list");
-        }
+        boardAccessService.checkAccess(taskList.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to add card to this list");
         
         Card card = Card.builder()
                 .title(request.getTitle())
@@ -50,12 +53,23 @@ public class CardService {
                 .isCompleted(false)
                 .build();
         
-        card = cardRepository.save(card);
-        
-        taskList.getCardOrderIds().add(card.getId());
-        taskListRepository.save(taskList);
+        long seq;
+        if (rankOrderingService.isEnabled()) {
+            seq = boardMutationSequencer.run(taskList.getBoardId(), () -> {
+                card.setRank(rankOrderingService.nextCardRank(listId));
+                return cardRepository.save(card);
+            }).seq();
+        } else {
+            // Chỉ $push id mới vào cardOrderIds, các card tạo cùng lúc được gộp thành một lần ghi
+            cardRepository.save(card);
+            seq = boardMutationSequencer.appendCard(taskList.getBoardId(), listId, card.getId());
+        }
+        boardRepository.incrementCounts(taskList.getBoardId(), 0, 1, 0);
+        boardSnapshotCache.markChanged(taskList.getBoardId());
         
-        return CardResponse.fromEntity(card);
+        CardResponse response = CardResponse.fromEntity(card);
+        response.setSeq(seq);
+        return response;
     }
     
     public CardResponse createStandaloneCard(CardRequest request, String userId) {
@@ -83,63 +97,59 @@ public class CardService {
     }
     
     public CardResponse getCardById(String cardId, String userId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
-        
-        Board board = boardRepository.findById(card.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", card.getBoardId()));
+        Card card = findActiveCard(cardId);
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to access this card");
-        }
+        boardAccessService.checkAccess(card.getBoardId(), userId, BoardRole.VIEWER, "You don't have permission to access this card");
         
         return CardResponse.fromEntity(card);
     }
     
+    // Chỉ $set các field có trong request; version khác null thì so khớp, lệch version trả 409 kèm card hiện tại
     public CardResponse updateCard(String cardId, CardRequest request, String userId) {
-        Card card = cardRepository.findById(cardId)
+        Card ref = cardRepository.findRefById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+        requireActiveList(ref);
         
-        Board board = boardRepository.findById(card.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", card.getBoardId()));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this card");
-        }
+        boardAccessService.checkAccess(ref.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to update this card");
         
+        Map<String, Object> changes = new LinkedHashMap<>();
         if (request.getTitle() != null) {
-            card.setTitle(request.getTitle());
-        }
-        if (request.getDescription() != null) {
-            card.setDescription(request.getDescription());
-        }
-        if (request.getCover() != null) {
-            card.setCover(request.getCover());
-        }
-        if (request.getMemberIds() != null) {
-            card.setMemberIds(request.getMemberIds());
-        }
-        if (request.getLabels() != null) {
-            card.setLabels(request.getLabels());
-        }
-        if (request.getStartDate() != null) {
-            card.setStartDate(request.getStartDate());
+            if (!StringUtils.hasText(request.getTitle())) {
+                throw new BadRequestException("Title is required");
+            }
+            changes.put("title", request.getTitle());
         }
-        if (request.getDueDate() != null) {
-            card.setDueDate(request.getDueDate());
+        putIfPresent(changes, "description", request.getDescription());
+        putIfPresent(changes, "cover", request.getCover());
+        putIfPresent(changes, "memberIds", request.getMemberIds());
+        putIfPresent(changes, "labels", request.getLabels());
+        putIfPresent(changes, "startDate", request.getStartDate());
+        putIfPresent(changes, "dueDate", request.getDueDate());
+        putIfPresent(changes, "isCompleted", request.getIsCompleted());
+        if (changes.isEmpty()) {
+            return getCardById(cardId, userId);
         }
+        
+        // Thử ghi kèm điều kiện isCompleted đổi trạng thái trước; không khớp thì trạng thái đã đúng sẵn
+        Card savedCard = null;
         if (request.getIsCompleted() != null) {
-            card.setIsCompleted(request.getIsCompleted());
+            savedCard = cardRepository.patch(cardId, changes, request.getVersion(), true).orElse(null);
+            if (savedCard != null) {
+                boardRepository.incrementCounts(ref.getBoardId(), 0, 0, request.getIsCompleted() ? 1 : -1);
+            }
+        }
+        if (savedCard == null) {
+            savedCard = cardRepository.patch(cardId, changes, request.getVersion(), false)
+                    .orElseThrow(() -> cardConflict(cardId));
         }
         
-        Card savedCard = cardRepository.save(card);
+        boardSnapshotCache.markChanged(ref.getBoardId());
         return CardResponse.fromEntity(savedCard);
     }
     
     @Transactional
     public void deleteCard(String cardId, String userId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+        Card card = findActiveCard(cardId);
         
         // Nếu card không thuộc board nào (standalone card)
         if (card.getBoardId() == null) {
@@ -152,58 +162,112 @@ public class CardService {
         }
         
         // Xử lý card trong board
-        Board board = boardRepository.findById(card.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", card.getBoardId()));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to delete this card");
-        }
+        boardAccessService.checkAccess(card.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to delete this card");
         
         // Nếu card có listId thì xóa khỏi list
-        if (card.getListId() != null) {
-            TaskList taskList = taskListRepository.findById(card.getListId())
-                    .orElseThrow(() -> new ResourceNotFoundException("List", "id", card.getListId()));
-            
-            taskList.getCardOrderIds().remove(cardId);
-            taskListRepository.save(taskList);
+        if (card.getListId() != null && !rankOrderingService.isEnabled()) {
+            boardMutationSequencer.removeCard(card.getBoardId(), card.getListId(), cardId);
         }
         
         cardRepository.delete(card);
+        boardRepository.incrementCounts(card.getBoardId(), 0, -1, Boolean.TRUE.equals(card.getIsCompleted()) ? -1 : 0);
+        boardSnapshotCache.markChanged(card.getBoardId());
     }
     
     @Transactional
     public CardResponse moveCard(String cardId, MoveCardRequest request, String userId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+        Card card = findActiveCard(cardId);
         
-        Board board = boardRepository.findById(card.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", card.getBoardId()));
+        boardAccessService.checkAccess(card.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to move this card");
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to move this card");
-        }
+        // Chèn vào giữa mảng hoặc tính rank theo card lân cận: chạy trong lượt của board
+        BoardMutationSequencer.Sequenced<CardResponse> moved = boardMutationSequencer.run(card.getBoardId(),
+                () -> rankOrderingService.isEnabled() ? moveCardByRank(card, request) : moveCardInArray(card, request));
+        boardSnapshotCache.markChanged(card.getBoardId());
         
-        TaskList sourceList = taskListRepository.findById(card.getListId())
-                .orElseThrow(() -> new ResourceNotFoundException("List", "id", card.getListId()));
+        CardResponse response = moved.value();
+        response.setSeq(moved.seq());
+        return response;
+    }
+    
+    private CardResponse moveCardInArray(Card card, MoveCardRequest request) {
+        String cardId = card.getId();
+        String sourceListId = card.getListId();
+        String targetListId = request.getTargetListId();
         
-        TaskList targetList = taskListRepository.findById(request.getTargetListId())
-                .orElseThrow(() -> new ResourceNotFoundException("List", "id", request.getTargetListId()));
+        // Chèn vào list đích trước: filter theo boardId nên list của board khác sẽ không bị đụng tới
+        int position = taskListRepository.insertCardId(targetListId, card.getBoardId(), cardId,
+                        Math.max(request.getNewIndex(), 0))
+                .orElseThrow(() -> taskListRepository.existsByIdAndDeletedAtIsNull(targetListId)
+                        ? new BadRequestException("Cannot move card to a list in different board")
+                        : new ResourceNotFoundException("List", "id", targetListId));
         
-        if (!targetList.getBoardId().equals(card.getBoardId())) {
-            throw new BadRequestException("Cannot move card to a list in different board");
+        // Chỉ đổi listId nếu card vẫn còn ở list nguồn, tránh ghi đè một lần move chạy song song
+        if (!cardRepository.updateListId(cardId, sourceListId, targetListId, null)) {
+            Card current = cardRepository.findById(cardId).orElse(null);
+            if (current == null || !targetListId.equals(current.getListId())) {
+                taskListRepository.removeCardId(targetListId, cardId);
+            }
+            throw new ConflictException("Card was moved by another request, please reload the board");
         }
         
-        sourceList.getCardOrderIds().remove(cardId);
-        taskListRepository.save(sourceList);
+        if (!targetListId.equals(sourceListId)) {
+            taskListRepository.removeCardId(sourceListId, cardId);
+        }
         
-        List<String> targetCardOrderIds = targetList.getCardOrderIds();
-        int newIndex = Math.min(request.getNewIndex(), targetCardOrderIds.size());
-        targetCardOrderIds.add(newIndex, cardId);
-        taskListRepository.save(targetList);
+        card.setListId(targetListId);
+        CardResponse response = CardResponse.fromEntity(card);
+        response.setPosition(position);
+        return response;
+    }
+    
+    // Chế độ rank: chỉ đọc card lân cận ở list đích và ghi một lần lên chính card
+    private CardResponse moveCardByRank(Card card, MoveCardRequest request) {
+        String targetListId = request.getTargetListId();
+        if (!taskListRepository.existsByIdAndBoardIdAndDeletedAtIsNull(targetListId, card.getBoardId())) {
+            throw taskListRepository.existsByIdAndDeletedAtIsNull(targetListId)
+                    ? new BadRequestException("Cannot move card to a list in different board")
+                    : new ResourceNotFoundException("List", "id", targetListId);
+        }
         
-        card.setListId(request.getTargetListId());
-        Card savedCard = cardRepository.save(card);
+        RankOrderingService.Slot slot = rankOrderingService.cardSlot(targetListId, card.getId(),
+                Math.max(request.getNewIndex(), 0));
+        if (!cardRepository.updateListId(card.getId(), card.getListId(), targetListId, slot.rank())) {
+            throw new ConflictException("Card was moved by another request, please reload the board");
+        }
         
-        return CardResponse.fromEntity(savedCard);
+        card.setListId(targetListId);
+        card.setRank(slot.rank());
+        CardResponse response = CardResponse.fromEntity(card);
+        response.setPosition(slot.position());
+        return response;
+    }
+    
+    private Card findActiveCard(String cardId) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+        requireActiveList(card);
+        return card;
+    }
+    
+    // Card trong list đã bị xóa (chờ DeletionReaper dọn) coi như không còn
+    private void requireActiveList(Card card) {
+        if (card.getListId() != null && !taskListRepository.existsByIdAndDeletedAtIsNull(card.getListId())) {
+            throw new ResourceNotFoundException("Card", "id", card.getId());
+        }
+    }
+    
+    private RuntimeException cardConflict(String cardId) {
+        Card current = cardRepository.findById(cardId).orElse(null);
+        if (current == null) {
+            return new ResourceNotFoundException("Card", "id", cardId);
+        }
+        return new VersionConflictException("Card was modified by another request", CardResponse.fromEntity(current));
+    }
+    
+    private static void putIfPresent(Map<String, Object> changes, String field, Object value) {
+        if (value != null) {
+            changes.put(field, value);
+        }
     }
 }
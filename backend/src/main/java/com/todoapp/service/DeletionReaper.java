@@ -0,0 +1,138 @@
+package com.todoapp.service;
+
+import com.todoapp.repository.BoardRepository;
+import com.todoapp.repository.BoardRevisionRepository;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.TaskListRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Dọn dữ liệu con của board/list đã bị đánh dấu xóa. Mỗi lượt chỉ xóa tối đa max-batches-per-run lô,
+ * nghỉ pause-ms giữa các lô để không chiếm hết Mongo. Trạng thái nằm ở deletedAt trong Mongo nên
+ * sau khi khởi động lại sẽ tự làm tiếp.
+ */
+@Slf4j
+@Component
+public class DeletionReaper {
+    
+    private final BoardRepository boardRepository;
+    private final BoardRevisionRepository boardRevisionRepository;
+    private final TaskListRepository taskListRepository;
+    private final CardRepository cardRepository;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMs;
+    private final Counter reapedCards;
+    private final Counter reapedLists;
+    private final Counter reapedBoards;
+    
+    public DeletionReaper(BoardRepository boardRepository,
+                          BoardRevisionRepository boardRevisionRepository,
+                          TaskListRepository taskListRepository,
+                          CardRepository cardRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${board.reaper.batch-size:500}") int batchSize,
+                          @Value("${board.reaper.max-batches-per-run:20}") int maxBatchesPerRun,
+                          @Value("${board.reaper.pause-ms:50}") long pauseMs) {
+        this.boardRepository = boardRepository;
+        this.boardRevisionRepository = boardRevisionRepository;
+        this.taskListRepository = taskListRepository;
+        this.cardRepository = cardRepository;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMs = pauseMs;
+        this.reapedCards = Counter.builder("board.reaper.deleted").tag("type", "card").register(meterRegistry);
+        this.reapedLists = Counter.builder("board.reaper.deleted").tag("type", "list").register(meterRegistry);
+        this.reapedBoards = Counter.builder("board.reaper.deleted").tag("type", "board").register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${board.reaper.interval-ms:10000}")
+    public void reap() {
+        int budget = maxBatchesPerRun;
+        for (String listId : taskListRepository.findDeletedIds(maxBatchesPerRun)) {
+            budget = reapList(listId, budget);
+            if (budget <= 0) {
+                return;
+            }
+        }
+        for (String boardId : boardRepository.findDeletedIds(maxBatchesPerRun)) {
+            budget = reapBoard(boardId, budget);
+            if (budget <= 0) {
+                return;
+            }
+        }
+    }
+    
+    // Trả về số lô còn được phép chạy trong lượt này
+    private int reapList(String listId, int budget) {
+        Progress cards = drain(budget, limit -> cardRepository.deleteBatchByListId(listId, limit), reapedCards);
+        if (!cards.finished()) {
+            log.info("Reaping list {}: {} cards removed this run, continuing next run", listId, cards.removed());
+            return 0;
+        }
+        
+        taskListRepository.deleteById(listId);
+        reapedLists.increment();
+        log.info("Reaped list {} ({} cards removed this run)", listId, cards.removed());
+        return cards.budget();
+    }
+    
+    private int reapBoard(String boardId, int budget) {
+        Progress cards = drain(budget, limit -> cardRepository.deleteBatchByBoardId(boardId, limit), reapedCards);
+        if (!cards.finished()) {
+            log.info("Reaping board {}: {} cards removed this run, continuing next run", boardId, cards.removed());
+            return 0;
+        }
+        if (cards.budget() == 0) {
+            return 0;
+        }
+        Progress lists = drain(cards.budget(), limit -> taskListRepository.deleteBatchByBoardId(boardId, limit), reapedLists);
+        if (!lists.finished()) {
+            log.info("Reaping board {}: {} lists removed this run, continuing next run", boardId, lists.removed());
+            return 0;
+        }
+        
+        boardRevisionRepository.deleteById(boardId);
+        boardRepository.deleteById(boardId);
+        reapedBoards.increment();
+        log.info("Reaped board {} ({} cards, {} lists removed this run)", boardId, cards.removed(), lists.removed());
+        return lists.budget();
+    }
+    
+    // Xóa theo lô cho tới khi hết dữ liệu hoặc hết số lô được phép
+    private Progress drain(int budget, ToLongFunction<Integer> deleteBatch, Counter counter) {
+        long removed = 0;
+        while (budget > 0) {
+            long deleted = deleteBatch.applyAsLong(batchSize);
+            budget--;
+            removed += deleted;
+            counter.increment(deleted);
+            if (deleted < batchSize) {
+                return new Progress(true, removed, budget);
+            }
+            pause();
+        }
+        return new Progress(false, removed, 0);
+    }
+    
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private record Progress(boolean finished, long removed, int budget) {
+    }
+}
@@ -16,6 +16,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +26,7 @@ public class FriendshipService {
     
     private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
+    private final ResponseHydrator responseHydrator;
     
     @Transactional
     public FriendshipResponse sendFriendRequest(String userId, FriendshipRequest request) {
@@ -110,22 +113,19 @@ public class FriendshipService {
         List<Friendship> receivedRequests = friendshipRepository.findByFriendIdAndStatus(userId, FriendshipStatus.ACCEPTED);
         
         List<FriendshipResponse> responses = new ArrayList<>();
+        Set<String> friendIds = ResponseHydrator.collectIds(sentRequests, Friendship::getFriendId);
+        friendIds.addAll(ResponseHydrator.collectIds(receivedRequests, Friendship::getUserId));
+        Map<String, UserResponse> friends = responseHydrator.users(friendIds);
         
         for (Friendship friendship : sentRequests) {
             FriendshipResponse response = FriendshipResponse.fromEntity(friendship);
-            User friend = userRepository.findById(friendship.getFriendId()).orElse(null);
-            if (friend != null) {
-                response.setFriend(UserResponse.fromEntity(friend));
-            }
+            response.setFriend(friends.get(friendship.getFriendId()));
             responses.add(response);
         }
         
         for (Friendship friendship : receivedRequests) {
             FriendshipResponse response = FriendshipResponse.fromEntity(friendship);
-            User friend = userRepository.findById(friendship.getUserId()).orElse(null);
-            if (friend != null) {
-                response.setFriend(UserResponse.fromEntity(friend));
-            }
+            response.setFriend(friends.get(friendship.getUserId()));
             responses.add(response);
         }
         
@@ -134,14 +134,13 @@ public class FriendshipService {
     
     public List<FriendshipResponse> getPendingRequests(String userId) {
         List<Friendship> requests = friendshipRepository.findByFriendIdAndStatus(userId, FriendshipStatus.PENDING);
+        Map<String, UserResponse> requesters = responseHydrator.users(
+                ResponseHydrator.collectIds(requests, Friendship::getUserId));
         
         return requests.stream()
                 .map(friendship -> {
                     FriendshipResponse response = FriendshipResponse.fromEntity(friendship);
-                    User requester = userRepository.findById(friendship.getUserId()).orElse(null);
-                    if (requester != null) {
-                        response.setUser(UserResponse.fromEntity(requester));
-                    }
+                    response.setUser(requesters.get(friendship.getUserId()));
                     return response;
                 })
                 .collect(Collectors.toList());
@@ -149,14 +148,13 @@ public class FriendshipService {
     
     public List<FriendshipResponse> getSentRequests(String userId) {
         List<Friendship> requests = friendshipRepository.findByUserIdAndStatus(userId, FriendshipStatus.PENDING);
+        Map<String, UserResponse> friends = responseHydrator.users(
+                ResponseHydrator.collectIds(requests, Friendship::getFriendId));
         
         return requests.stream()
                 .map(friendship -> {
                     FriendshipResponse response = FriendshipResponse.fromEntity(friendship);
-                    User friend = userRepository.findById(friendship.getFriendId()).orElse(null);
-                    if (friend != null) {
-                        response.setFriend(UserResponse.fromEntity(friend));
-                    }
+                    response.setFriend(friends.get(friendship.getFriendId()));
                     return response;
                 })
                 .collect(Collectors.toList());
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +23,7 @@ public class IdeaService {
     
     private final IdeaRepository ideaRepository;
     private final UserRepository userRepository;
+    private final ResponseHydrator responseHydrator;
     
     @Transactional
     public IdeaResponse createIdea(IdeaRequest request, String userId) {
@@ -57,17 +59,7 @@ public class IdeaService {
     }
     
     public List<IdeaResponse> getAllIdeas() {
-        List<Idea> ideas = ideaRepository.findAll();
-        return ideas.stream()
-                .map(idea -> {
-                    IdeaResponse response = IdeaResponse.fromEntity(idea);
-                    User user = userRepository.findById(idea.getUserId()).orElse(null);
-                    if (user != null) {
-                        response.setUser(UserResponse.fromEntity(user));
-                    }
-                    return response;
-                })
-                .collect(Collectors.toList());
+        return withUsers(ideaRepository.findAll());
     }
     
     public List<IdeaResponse> getMyIdeas(String userId) {
@@ -78,14 +70,16 @@ public class IdeaService {
     }
     
     public List<IdeaResponse> getApprovedIdeas() {
-        List<Idea> ideas = ideaRepository.findByIsApproved(true);
+        return withUsers(ideaRepository.findByIsApproved(true));
+    }
+    
+    private List<IdeaResponse> withUsers(List<Idea> ideas) {
+        Map<String, UserResponse> users = responseHydrator.users(
+                ResponseHydrator.collectIds(ideas, Idea::getUserId));
         return ideas.stream()
                 .map(idea -> {
                     IdeaResponse response = IdeaResponse.fromEntity(idea);
-                    User user = userRepository.findById(idea.getUserId()).orElse(null);
-                    if (user != null) {
-                        response.setUser(UserResponse.fromEntity(user));
-                    }
+                    response.setUser(users.get(idea.getUserId()));
                     return response;
                 })
                 .collect(Collectors.toList());
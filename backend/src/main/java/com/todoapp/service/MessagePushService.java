@@ -0,0 +1,85 @@
+package com.todoapp.service;
+
+import com.todoapp.dto.response.MessageResponse;
+import com.todoapp.dto.response.UnreadCountResponse;
+import com.todoapp.repository.MessageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+// Đẩy tin nhắn mới / số tin chưa đọc tới các phiên WebSocket đang mở, chạy ngoài luồng xử lý request
+@Slf4j
+@Service
+public class MessagePushService {
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final MessageRepository messageRepository;
+    private final ThreadPoolTaskExecutor executor;
+    
+    public MessagePushService(SimpMessagingTemplate messagingTemplate,
+                              SimpUserRegistry userRegistry,
+                              MessageRepository messageRepository,
+                              @Value("${messaging.push.threads:4}") int threads,
+                              @Value("${messaging.push.queue-capacity:10000}") int queueCapacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.messageRepository = messageRepository;
+        
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("message-push-");
+        this.executor.initialize();
+    }
+    
+    public void pushMessage(String receiverId, MessageResponse message, long conversationUnread) {
+        submit(receiverId, () -> {
+            messagingTemplate.convertAndSendToUser(receiverId, "/queue/messages", message);
+            sendUnread(receiverId, message.getSenderId(), conversationUnread);
+        });
+    }
+    
+    public void pushUnread(String userId, String otherUserId, long conversationUnread) {
+        submit(userId, () -> sendUnread(userId, otherUserId, conversationUnread));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private void sendUnread(String userId, String otherUserId, long conversationUnread) {
+        UnreadCountResponse unread = UnreadCountResponse.builder()
+                .userId(otherUserId)
+                .conversationUnread(Math.max(conversationUnread, 0))
+                .totalUnread(messageRepository.countByReceiverIdAndIsReadFalse(userId))
+                .build();
+        messagingTemplate.convertAndSendToUser(userId, "/queue/unread", unread);
+    }
+    
+    private void submit(String userId, Runnable task) {
+        // Người dùng không có phiên nào đang mở thì bỏ qua, client sẽ lấy lại khi mở app
+        if (userRegistry.getUser(userId) == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to push message update to user {}", userId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Push queue is full, dropping update for user {}", userId);
+        }
+    }
+}
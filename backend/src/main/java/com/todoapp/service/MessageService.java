@@ -3,17 +3,23 @@ package com.todoapp.service;
 import com.todoapp.dto.request.MessageRequest;
 import com.todoapp.dto.response.CardResponse;
 import com.todoapp.dto.response.ConversationResponse;
+import com.todoapp.dto.response.MessagePageResponse;
 import com.todoapp.dto.response.MessageResponse;
 import com.todoapp.dto.response.UserResponse;
 import com.todoapp.exception.BadRequestException;
 import com.todoapp.exception.ResourceNotFoundException;
 import com.todoapp.model.Card;
+import com.todoapp.model.Conversation;
 import com.todoapp.model.Message;
-import com.todoapp.model.User;
 import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.ConversationRepository;
 import com.todoapp.repository.MessageRepository;
 import com.todoapp.repository.UserRepository;
+import com.todoapp.util.MessageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,9 +30,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MessageService {
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
     private final CardRepository cardRepository;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final ResponseHydrator responseHydrator;
+    private final MessagePushService messagePushService;
     
     @Transactional
     public MessageResponse sendMessage(String senderId, MessageRequest request) {
@@ -36,8 +49,12 @@ public class MessageService {
             throw new BadRequestException("Cannot send message to yourself");
         }
         
-        User receiver = userRepository.findById(receiverId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", receiverId));
+        // Nạp sender và receiver trong cùng một truy vấn
+        Map<String, UserResponse> users = responseHydrator.users(List.of(senderId, receiverId));
+        UserResponse receiver = users.get(receiverId);
+        if (receiver == null) {
+            throw new ResourceNotFoundException("User", "id", receiverId);
+        }
         
         Message.MessageType messageType = Message.MessageType.TEXT;
         Card card = null;
@@ -49,15 +66,17 @@ public class MessageService {
             messageType = Message.MessageType.CARD;
             
             // Thêm receiver vào danh sách member của card
-            if (!card.getMemberIds().contains(receiverId)) {
-                card.getMemberIds().add(receiverId);
-                cardRepository.save(card);
+            if (!card.getMemberIds().contains(receiverId)
+                    && cardRepository.addMember(card.getId(), receiverId)
+                    && card.getBoardId() != null) {
+                boardSnapshotCache.markChanged(card.getBoardId());
             }
         }
         
         Message message = Message.builder()
                 .senderId(senderId)
                 .receiverId(receiverId)
+                .conversationKey(Message.conversationKeyOf(senderId, receiverId))
                 .content(request.getContent())
                 .type(messageType)
                 .cardId(request.getCardId())
@@ -65,48 +84,82 @@ public class MessageService {
                 .build();
         
         message = messageRepository.save(message);
+        long receiverUnread = conversationRepository.recordMessage(message);
         
         MessageResponse response = MessageResponse.fromEntity(message);
-        response.setReceiver(UserResponse.fromEntity(receiver));
-        
-        User sender = userRepository.findById(senderId).orElse(null);
-        if (sender != null) {
-            response.setSender(UserResponse.fromEntity(sender));
-        }
+        response.setReceiver(receiver);
+        response.setSender(users.get(senderId));
         
         if (card != null) {
             response.setCard(CardResponse.fromEntity(card));
         }
         
+        messagePushService.pushMessage(receiverId, response, receiverUnread);
         return response;
     }
     
-    public List<MessageResponse> getConversation(String userId, String otherUserId) {
-        userRepository.findById(otherUserId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", otherUserId));
+    // Endpoint cũ: chỉ trả tối đa MAX_PAGE_SIZE tin mới nhất, hasMore/beforeCursor để controller báo bị cắt.
+    // Client mới dùng getConversationPage
+    @Deprecated
+    public MessagePageResponse getConversation(String userId, String otherUserId) {
+        return getConversationPage(userId, otherUserId, null, null, MAX_PAGE_SIZE);
+    }
+    
+    public MessagePageResponse getConversationPage(String userId, String otherUserId,
+                                                   String before, String after, Integer limit) {
+        if (!userRepository.existsById(otherUserId)) {
+            throw new ResourceNotFoundException("User", "id", otherUserId);
+        }
+        if (before != null && after != null) {
+            throw new BadRequestException("Only one of before/after can be used");
+        }
         
-        List<Message> messages = messageRepository.findConversationBetweenUsers(userId, otherUserId);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        MessageCursor afterCursor = MessageCursor.parse(after);
+        
+        // Lấy dư một phần tử để biết còn trang tiếp theo hay không
+        List<Message> messages = new ArrayList<>(messageRepository.findConversationPage(
+                Message.conversationKeyOf(userId, otherUserId),
+                MessageCursor.parse(before), afterCursor, pageSize + 1));
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages.remove(pageSize);
+        }
+        if (afterCursor == null) {
+            Collections.reverse(messages);
+        }
         
-        // Sắp xếp theo thời gian tăng dần
-        messages.sort(Comparator.comparing(Message::getCreatedAt));
+        return MessagePageResponse.builder()
+                .messages(toResponses(messages))
+                .beforeCursor(messages.isEmpty() ? before : MessageCursor.of(messages.get(0)).encode())
+                .afterCursor(messages.isEmpty() ? after : MessageCursor.of(messages.get(messages.size() - 1)).encode())
+                .hasMore(hasMore)
+                .build();
+    }
+    
+    // Dữ liệu cũ: gán conversationKey trước, sau đó dựng summary nếu collection conversations còn trống
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillConversations() {
+        messageRepository.backfillConversationKeys();
+        if (conversationRepository.count() == 0) {
+            conversationRepository.rebuildFromMessages();
+        }
+    }
+    
+    private List<MessageResponse> toResponses(List<Message> messages) {
+        Map<String, UserResponse> users = responseHydrator.users(
+                ResponseHydrator.collectIds(messages, Message::getSenderId, Message::getReceiverId));
+        Map<String, CardResponse> cards = responseHydrator.cards(
+                ResponseHydrator.collectIds(messages, Message::getCardId));
         
         return messages.stream()
                 .map(message -> {
                     MessageResponse response = MessageResponse.fromEntity(message);
-                    User sender = userRepository.findById(message.getSenderId()).orElse(null);
-                    User receiver = userRepository.findById(message.getReceiverId()).orElse(null);
-                    if (sender != null) {
-                        response.setSender(UserResponse.fromEntity(sender));
-                    }
-                    if (receiver != null) {
-                        response.setReceiver(UserResponse.fromEntity(receiver));
-                    }
+                    response.setSender(users.get(message.getSenderId()));
+                    response.setReceiver(users.get(message.getReceiverId()));
                     // Thêm thông tin card nếu có
                     if (message.getCardId() != null) {
-                        Card card = cardRepository.findById(message.getCardId()).orElse(null);
-                        if (card != null) {
-                            response.setCard(CardResponse.fromEntity(card));
-                        }
+                        response.setCard(cards.get(message.getCardId()));
                     }
                     return response;
                 })
@@ -122,76 +175,81 @@ public class MessageService {
             throw new BadRequestException("You can only mark your own messages as read");
         }
         
-        message.setIsRead(true);
-        messageRepository.save(message);
+        if (messageRepository.markRead(messageId)) {
+            long unread = conversationRepository.incrementUnread(
+                    Message.conversationKeyOf(message.getSenderId(), userId), userId, -1);
+            messagePushService.pushUnread(userId, message.getSenderId(), unread);
+        }
     }
     
-    @Transactional
-    public void markConversationAsRead(String userId, String otherUserId) {
-        List<Message> messages = messageRepository.findConversationBetweenUsers(userId, otherUserId);
-        
-        messages.stream()
-                .filter(msg -> msg.getReceiverId().equals(userId) && !msg.getIsRead())
-                .forEach(msg -> {
-                    msg.setIsRead(true);
-                    messageRepository.save(msg);
-                });
+    public long markConversationAsRead(String userId, String otherUserId) {
+        String key = Message.conversationKeyOf(userId, otherUserId);
+        long marked = messageRepository.markConversationRead(key, userId);
+        if (marked > 0) {
+            long unread = conversationRepository.incrementUnread(key, userId, -marked);
+            messagePushService.pushUnread(userId, otherUserId, unread);
+        }
+        return marked;
     }
     
-    public List<ConversationResponse> getConversations(String userId) {
-        List<Message> allMessages = messageRepository.findAllByUserId(userId);
-        
-        // Nhóm tin nhắn theo người chat
-        Map<String, List<Message>> conversationMap = new HashMap<>();
+    // Đánh dấu nhiều tin cùng lúc: một updateMulti cho mỗi người gửi, trừ bộ đếm đúng số tin đã đổi
+    public long markAsRead(List<String> messageIds, String userId) {
+        Map<String, List<String>> idsBySender = messageRepository.findUnreadSenders(messageIds, userId).stream()
+                .collect(Collectors.groupingBy(Message::getSenderId,
+                        Collectors.mapping(Message::getId, Collectors.toList())));
         
-        for (Message message : allMessages) {
-            String otherUserId = message.getSenderId().equals(userId) 
-                ? message.getReceiverId() 
-                : message.getSenderId();
-            
-            conversationMap.computeIfAbsent(otherUserId, k -> new ArrayList<>()).add(message);
+        long marked = 0;
+        for (Map.Entry<String, List<String>> entry : idsBySender.entrySet()) {
+            String senderId = entry.getKey();
+            long count = messageRepository.markRead(entry.getValue(), senderId, userId);
+            if (count > 0) {
+                long unread = conversationRepository.incrementUnread(
+                        Message.conversationKeyOf(senderId, userId), userId, -count);
+                messagePushService.pushUnread(userId, senderId, unread);
+            }
+            marked += count;
         }
+        return marked;
+    }
+    
+    // Đọc thẳng từ summary: một truy vấn theo index {participantIds, lastMessageAt}
+    public List<ConversationResponse> getConversations(String userId, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<Conversation> summaries = conversationRepository
+                .findByParticipantIdsAndLastMessageAtNotNullOrderByLastMessageAtDesc(
+                        userId, PageRequest.of(Math.max(page, 0), pageSize));
         
-        // Tạo conversation response
-        List<ConversationResponse> conversations = new ArrayList<>();
+        Map<String, UserResponse> users = responseHydrator.users(summaries.stream()
+                .map(summary -> otherParticipant(summary, userId))
+                .collect(Collectors.toList()));
         
-        for (Map.Entry<String, List<Message>> entry : conversationMap.entrySet()) {
-            String otherUserId = entry.getKey();
-            List<Message> messages = entry.getValue();
-            
-            User otherUser = userRepository.findById(otherUserId).orElse(null);
+        List<ConversationResponse> conversations = new ArrayList<>();
+        for (Conversation summary : summaries) {
+            UserResponse otherUser = users.get(otherParticipant(summary, userId));
             if (otherUser == null) continue;
             
-            // Lấy tin nhắn cuối cùng
-            Message lastMessage = messages.stream()
-                    .max(Comparator.comparing(Message::getCreatedAt))
-                    .orElse(null);
-            
-            // Đếm tin nhắn chưa đọc
-            long unreadCount = messages.stream()
-                    .filter(msg -> msg.getReceiverId().equals(userId) && !msg.getIsRead())
-                    .count();
-            
-            ConversationResponse conversation = ConversationResponse.builder()
-                    .user(UserResponse.fromEntity(otherUser))
-                    .lastMessage(lastMessage != null ? MessageResponse.fromEntity(lastMessage) : null)
-                    .unreadCount(unreadCount)
-                    .lastMessageTime(lastMessage != null ? lastMessage.getCreatedAt() : null)
-                    .build();
-            
-            conversations.add(conversation);
+            // Tin cuối là tin mới nhất, nên đã đọc khi người nhận không còn tin chưa đọc nào
+            Conversation.LastMessage lastMessage = summary.getLastMessage();
+            boolean lastRead = lastMessage != null
+                    && summary.getUnreadCounts().getOrDefault(lastMessage.getReceiverId(), 0L) <= 0;
+            conversations.add(ConversationResponse.builder()
+                    .user(otherUser)
+                    .lastMessage(lastMessage != null ? MessageResponse.fromEntity(lastMessage.toMessage(lastRead)) : null)
+                    .unreadCount(Math.max(summary.getUnreadCounts().getOrDefault(userId, 0L), 0L))
+                    .lastMessageTime(summary.getLastMessageAt())
+                    .build());
         }
         
-        // Sắp xếp theo thời gian tin nhắn cuối cùng
-        conversations.sort((c1, c2) -> {
-            if (c1.getLastMessageTime() == null) return 1;
-            if (c2.getLastMessageTime() == null) return -1;
-            return c2.getLastMessageTime().compareTo(c1.getLastMessageTime());
-        });
-        
         return conversations;
     }
     
+    private static String otherParticipant(Conversation summary, String userId) {
+        return summary.getParticipantIds().stream()
+                .filter(id -> !id.equals(userId))
+                .findFirst()
+                .orElse(userId);
+    }
+    
     public Long getUnreadCount(String userId) {
         return messageRepository.countByReceiverIdAndIsReadFalse(userId);
     }
@@ -207,5 +265,19 @@ public class MessageService {
         }
         
         messageRepository.delete(message);
+        
+        String key = Message.conversationKeyOf(message.getSenderId(), message.getReceiverId());
+        if (!message.getIsRead()) {
+            conversationRepository.incrementUnread(key, message.getReceiverId(), -1);
+        }
+        // Nếu xóa đúng tin cuối cùng thì lấy tin trước đó làm lastMessage (hết tin thì summary chỉ còn unreadCounts)
+        boolean wasLast = conversationRepository.findById(key)
+                .map(Conversation::getLastMessage)
+                .filter(last -> messageId.equals(last.getId()))
+                .isPresent();
+        if (wasLast) {
+            conversationRepository.replaceLastMessage(key,
+                    messageRepository.findFirstByConversationKeyOrderByCreatedAtDescIdDesc(key).orElse(null));
+        }
     }
 }
@@ -0,0 +1,142 @@
+package com.todoapp.service;
+
+import com.todoapp.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+// BCrypt chạy trên pool riêng có giới hạn, để đợt đăng nhập dồn dập không chiếm hết luồng của Tomcat
+@Slf4j
+@Service
+public class PasswordHashingService {
+    
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 14;
+    
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMs;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+    
+    // Hash giả để so khớp khi email không tồn tại, tránh lộ email qua thời gian phản hồi
+    private final String dummyHash;
+    
+    public PasswordHashingService(MeterRegistry meterRegistry,
+                                  @Value("${auth.password-hashing.strength:0}") int strength,
+                                  @Value("${auth.password-hashing.target-ms:250}") long targetMs,
+                                  @Value("${auth.password-hashing.threads:0}") int threads,
+                                  @Value("${auth.password-hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.password-hashing.timeout-ms:3000}") long timeoutMs) {
+        int cost = strength > 0 ? strength : calibrate(targetMs);
+        log.info("Using BCrypt strength {}", cost);
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.dummyHash = encoder.encode("dummy-password");
+        this.timeoutMs = timeoutMs;
+        
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("password-hash-");
+        this.executor.initialize();
+        
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+    
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> encoder.encode(rawPassword)));
+    }
+    
+    // encodedPassword null (không có user) vẫn tốn một lần hash như bình thường
+    public boolean matches(String rawPassword, String encodedPassword) {
+        String hash = encodedPassword != null ? encodedPassword : dummyHash;
+        boolean matched = submit(() -> matchesTimer.record(() -> encoder.matches(rawPassword, hash)));
+        return matched && encodedPassword != null;
+    }
+    
+    // Hash cũ có cost thấp hơn cấu hình hiện tại: tính lại ở nền, không bắt người dùng chờ
+    public void upgradeIfNeeded(String rawPassword, String encodedPassword, Consumer<String> onRehashed) {
+        if (!encoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    onRehashed.accept(encodeTimer.record(() -> encoder.encode(rawPassword)));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to upgrade password hash", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool đang bận, lần đăng nhập sau sẽ thử lại
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Authentication is busy, please retry");
+        }
+        
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Authentication is busy, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Authentication was interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+    
+    // Mỗi lần tăng cost, thời gian hash tăng gấp đôi: đo một lần ở cost thấp nhất rồi ngoại suy
+    private static int calibrate(long targetMs) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+        probe.encode("calibration");
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        
+        int strength = MIN_STRENGTH;
+        while (strength < MAX_STRENGTH && elapsedMs * 2 <= targetMs) {
+            strength++;
+            elapsedMs *= 2;
+        }
+        return strength;
+    }
+}
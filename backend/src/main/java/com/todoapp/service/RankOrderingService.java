@@ -0,0 +1,193 @@
+package com.todoapp.service;
+
+import com.todoapp.exception.ConflictException;
+import com.todoapp.exception.ResourceNotFoundException;
+import com.todoapp.model.Board;
+import com.todoapp.model.Card;
+import com.todoapp.model.OrderingMode;
+import com.todoapp.model.TaskList;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.TaskListRepository;
+import com.todoapp.util.RankKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class RankOrderingService {
+    
+    private final CardRepository cardRepository;
+    private final TaskListRepository taskListRepository;
+    private final RankRebalancer rankRebalancer;
+    private final OrderingMode mode;
+    
+    public RankOrderingService(CardRepository cardRepository,
+                               TaskListRepository taskListRepository,
+                               RankRebalancer rankRebalancer,
+                               @Value("${board.ordering.mode:ARRAY}") OrderingMode mode) {
+        this.cardRepository = cardRepository;
+        this.taskListRepository = taskListRepository;
+        this.rankRebalancer = rankRebalancer;
+        this.mode = mode;
+    }
+    
+    public OrderingMode getMode() {
+        return mode;
+    }
+    
+    public boolean isEnabled() {
+        return mode == OrderingMode.RANK;
+    }
+    
+    public String nextCardRank(String listId) {
+        Card last = cardRepository.findFirstByListIdOrderByRankDesc(listId).orElse(null);
+        String rank = RankKeys.between(last != null ? last.getRank() : null, null);
+        if ((last != null && last.getRank() == null) || RankKeys.isTooLong(rank)) {
+            rankRebalancer.requestCardRebalance(listId);
+        }
+        return rank;
+    }
+    
+    public String nextListRank(String boardId) {
+        TaskList last = taskListRepository.findFirstByBoardIdOrderByRankDesc(boardId).orElse(null);
+        String rank = RankKeys.between(last != null ? last.getRank() : null, null);
+        if ((last != null && last.getRank() == null) || RankKeys.isTooLong(rank)) {
+            rankRebalancer.requestListRebalance(boardId);
+        }
+        return rank;
+    }
+    
+    // Tính rank để card đứng tại vị trí index trong list (không tính chính card đó), chỉ đọc hai card lân cận.
+    // Người gọi phải đang ở trong lượt của board trên BoardMutationSequencer
+    public Slot cardSlot(String listId, String cardId, int index) {
+        Slot slot = findCardSlot(listId, cardId, index);
+        if (slot == null) {
+            // Lân cận chưa có rank hoặc trùng rank: rải lại cả list rồi tính lại (đang ở trong lượt của board)
+            rankRebalancer.rebalanceCardsInTurn(listId);
+            slot = findCardSlot(listId, cardId, index);
+        }
+        if (slot == null) {
+            throw new ConflictException("List order changed, please reload the board");
+        }
+        
+        if (RankKeys.isTooLong(slot.rank())) {
+            rankRebalancer.requestCardRebalance(listId);
+        }
+        return slot;
+    }
+    
+    // Vị trí ngay sau afterCardId (null: đầu list): đếm số card đứng trước nó theo rank rồi tính như cardSlot
+    public Slot cardSlotAfter(String listId, String cardId, String afterCardId) {
+        if (afterCardId == null) {
+            return cardSlot(listId, cardId, 0);
+        }
+        
+        Card after = cardRepository.findById(afterCardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", afterCardId));
+        if (after.getRank() == null) {
+            rankRebalancer.rebalanceCardsInTurn(listId);
+            after = cardRepository.findById(afterCardId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card", "id", afterCardId));
+        }
+        long before = cardRepository.countByListIdAndIdNotAndRankLessThan(listId, cardId, after.getRank());
+        return cardSlot(listId, cardId, (int) before + 1);
+    }
+    
+    private Slot findCardSlot(String listId, String cardId, int index) {
+        int position = index;
+        List<Card> window = index == 0
+                ? cardRepository.findRankWindow(listId, cardId, 0, 1)
+                : cardRepository.findRankWindow(listId, cardId, index - 1, 2);
+        
+        if (index > 0 && window.isEmpty()) {
+            // index vượt quá số card: đưa xuống cuối list
+            position = (int) cardRepository.countByListIdAndIdNot(listId, cardId);
+            window = position == 0
+                    ? List.of()
+                    : cardRepository.findRankWindow(listId, cardId, position - 1, 1);
+        }
+        
+        Card lower = position > 0 && !window.isEmpty() ? window.get(0) : null;
+        Card upper = position > 0 ? (window.size() > 1 ? window.get(1) : null) : (window.isEmpty() ? null : window.get(0));
+        
+        if ((lower != null && lower.getRank() == null) || (upper != null && upper.getRank() == null)) {
+            return null;
+        }
+        if (lower != null && upper != null && lower.getRank().compareTo(upper.getRank()) >= 0) {
+            return null;
+        }
+        
+        String rank = RankKeys.between(lower != null ? lower.getRank() : null, upper != null ? upper.getRank() : null);
+        return new Slot(rank, position);
+    }
+    
+    public void assignCardRanks(String listId, List<String> cardIds) {
+        cardRepository.updateRanks(listId, spread(cardIds));
+    }
+    
+    public void assignListRanks(String boardId, List<String> listIds) {
+        taskListRepository.updateRanks(boardId, spread(listIds));
+    }
+    
+    // Thứ tự hiển thị của list trong board: theo rank, hoặc theo listOrderIds (list không có trong mảng xếp cuối)
+    public List<TaskList> sortLists(Board board, List<TaskList> lists) {
+        List<TaskList> sorted = new ArrayList<>(lists);
+        Comparator<TaskList> byCreatedAt = Comparator.comparing(TaskList::getCreatedAt,
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        if (isEnabled()) {
+            sorted.sort(Comparator.comparing(TaskList::getRank, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                    .thenComparing(byCreatedAt));
+            return sorted;
+        }
+        
+        Map<String, Integer> positions = positionsOf(board.getListOrderIds());
+        sorted.sort(Comparator.comparing((TaskList list) -> positions.getOrDefault(list.getId(), Integer.MAX_VALUE))
+                .thenComparing(byCreatedAt));
+        return sorted;
+    }
+    
+    // Cùng quy tắc cho card trong một list: rank, hoặc vị trí trong cardOrderIds rồi tới thời điểm tạo
+    public List<Card> sortCards(TaskList list, List<Card> cards) {
+        List<Card> sorted = new ArrayList<>(cards);
+        Comparator<Card> byCreatedAt = Comparator.comparing(Card::getCreatedAt,
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        if (isEnabled()) {
+            sorted.sort(Comparator.comparing(Card::getRank, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                    .thenComparing(byCreatedAt));
+            return sorted;
+        }
+        
+        Map<String, Integer> positions = positionsOf(list.getCardOrderIds());
+        sorted.sort(Comparator.comparing((Card card) -> positions.getOrDefault(card.getId(), Integer.MAX_VALUE))
+                .thenComparing(byCreatedAt));
+        return sorted;
+    }
+    
+    private static Map<String, Integer> positionsOf(List<String> ids) {
+        Map<String, Integer> positions = new HashMap<>();
+        if (ids != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                positions.putIfAbsent(ids.get(i), i);
+            }
+        }
+        return positions;
+    }
+    
+    private static Map<String, String> spread(List<String> ids) {
+        List<String> keys = RankKeys.spread(ids.size());
+        Map<String, String> ranks = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            ranks.putIfAbsent(ids.get(i), keys.get(i));
+        }
+        return ranks;
+    }
+    
+    public record Slot(String rank, int position) {
+    }
+}
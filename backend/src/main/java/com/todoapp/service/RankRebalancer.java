@@ -0,0 +1,165 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Board;
+import com.todoapp.model.Card;
+import com.todoapp.model.OrderingMode;
+import com.todoapp.model.TaskList;
+import com.todoapp.repository.BoardRepository;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.TaskListRepository;
+import com.todoapp.util.RankKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Rải lại khóa rank khi khóa quá dài hoặc có card/list chưa có rank (dữ liệu cũ)
+@Slf4j
+@Component
+public class RankRebalancer {
+    
+    private final BoardRepository boardRepository;
+    private final TaskListRepository taskListRepository;
+    private final CardRepository cardRepository;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final BoardMutationSequencer boardMutationSequencer;
+    private final OrderingMode mode;
+    
+    private final Set<String> pendingLists = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingBoards = ConcurrentHashMap.newKeySet();
+    
+    public RankRebalancer(BoardRepository boardRepository,
+                          TaskListRepository taskListRepository,
+                          CardRepository cardRepository,
+                          BoardSnapshotCache boardSnapshotCache,
+                          BoardMutationSequencer boardMutationSequencer,
+                          @Value("${board.ordering.mode:ARRAY}") OrderingMode mode) {
+        this.boardRepository = boardRepository;
+        this.taskListRepository = taskListRepository;
+        this.cardRepository = cardRepository;
+        this.boardSnapshotCache = boardSnapshotCache;
+        this.boardMutationSequencer = boardMutationSequencer;
+        this.mode = mode;
+    }
+    
+    public void requestCardRebalance(String listId) {
+        pendingLists.add(listId);
+    }
+    
+    public void requestListRebalance(String boardId) {
+        pendingBoards.add(boardId);
+    }
+    
+    // Chuyển dữ liệu cũ sang rank: lấy thứ tự hiện có trong mảng làm thứ tự ban đầu
+    @EventListener(ApplicationReadyEvent.class)
+    public void enqueueUnranked() {
+        if (mode != OrderingMode.RANK) {
+            return;
+        }
+        cardRepository.findUnranked().forEach(card -> requestCardRebalance(card.getListId()));
+        taskListRepository.findUnranked().forEach(list -> requestListRebalance(list.getBoardId()));
+    }
+    
+    @Scheduled(fixedDelayString = "${board.ordering.rebalance-interval-ms:30000}")
+    public void rebalancePending() {
+        drain(pendingBoards, this::rebalanceLists);
+        drain(pendingLists, this::rebalanceCards);
+    }
+    
+    // Chạy nền: đọc rank rồi ghi lại phải nằm trong lượt của board, không thì đè mất một lần kéo thả xen giữa.
+    // Thứ tự không đổi nên seq giữ nguyên, client không nhận 409 vì việc dọn rank này
+    public void rebalanceCards(String listId) {
+        taskListRepository.findById(listId).ifPresent(taskList ->
+                boardMutationSequencer.runPreservingSeq(taskList.getBoardId(), () -> {
+                    rebalanceCardsInTurn(listId);
+                    return null;
+                }));
+    }
+    
+    public void rebalanceLists(String boardId) {
+        if (!boardRepository.existsById(boardId)) {
+            return;
+        }
+        boardMutationSequencer.runPreservingSeq(boardId, () -> {
+            rebalanceListsInTurn(boardId);
+            return null;
+        });
+    }
+    
+    // Chỉ gọi khi đang ở trong lượt của board (vd. RankOrderingService.cardSlot)
+    public void rebalanceCardsInTurn(String listId) {
+        TaskList taskList = taskListRepository.findById(listId).orElse(null);
+        if (taskList == null) {
+            return;
+        }
+        
+        List<Card> cards = new ArrayList<>(cardRepository.findRanksByListId(listId));
+        cards.sort(rankOrder(taskList.getCardOrderIds(), Card::getId, Card::getRank));
+        
+        cardRepository.updateRanks(listId, assignSpread(cards, Card::getId));
+        boardSnapshotCache.markChanged(taskList.getBoardId());
+    }
+    
+    private void rebalanceListsInTurn(String boardId) {
+        Board board = boardRepository.findById(boardId).orElse(null);
+        if (board == null) {
+            return;
+        }
+        
+        List<TaskList> lists = new ArrayList<>(taskListRepository.findRanksByBoardId(boardId));
+        lists.sort(rankOrder(board.getListOrderIds(), TaskList::getId, TaskList::getRank));
+        
+        taskListRepository.updateRanks(boardId, assignSpread(lists, TaskList::getId));
+        boardSnapshotCache.markChanged(boardId);
+    }
+    
+    // Phần tử đã có rank giữ nguyên thứ tự; phần tử chưa có rank xếp trước theo vị trí trong mảng cũ
+    private static <T> Comparator<T> rankOrder(List<String> legacyOrder,
+                                               Function<T, String> id,
+                                               Function<T, String> rank) {
+        Map<String, Integer> positions = new HashMap<>();
+        if (legacyOrder != null) {
+            for (int i = 0; i < legacyOrder.size(); i++) {
+                positions.putIfAbsent(legacyOrder.get(i), i);
+            }
+        }
+        
+        return Comparator.<T, String>comparing(rank, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(item -> positions.getOrDefault(id.apply(item), Integer.MAX_VALUE));
+    }
+    
+    private static <T> Map<String, String> assignSpread(List<T> items, Function<T, String> id) {
+        List<String> keys = RankKeys.spread(items.size());
+        Map<String, String> ranks = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            ranks.put(id.apply(items.get(i)), keys.get(i));
+        }
+        return ranks;
+    }
+    
+    private static void drain(Set<String> pending, Consumer<String> task) {
+        Iterator<String> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            String id = iterator.next();
+            iterator.remove();
+            try {
+                task.accept(id);
+            } catch (RuntimeException e) {
+                log.warn("Rank rebalance failed for {}", id, e);
+            }
+        }
+    }
+}
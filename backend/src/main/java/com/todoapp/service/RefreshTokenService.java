@@ -0,0 +1,104 @@
+package com.todoapp.service;
+
+import com.todoapp.exception.BadRequestException;
+import com.todoapp.model.RefreshToken;
+import com.todoapp.repository.RefreshTokenRepository;
+import com.todoapp.security.JwtTokenProvider;
+import com.todoapp.security.RefreshTokenRevocationIndex;
+import com.todoapp.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+// Phát và xoay vòng refresh token theo family; mỗi lần đăng nhập là một family (phiên)
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+    
+    private static final String LEGACY_ID_PREFIX = "legacy:";
+    
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenRevocationIndex revocationIndex;
+    private final JwtTokenProvider tokenProvider;
+    
+    public IssuedTokens issue(UserPrincipal principal) {
+        return issue(principal, UUID.randomUUID().toString());
+    }
+    
+    // Token đã được đổi mà còn bị gửi lại nghĩa là đã lộ: thu hồi cả family
+    public IssuedTokens rotate(String rawToken, Claims claims, UserPrincipal principal) {
+        if (claims.getId() == null) {
+            // Token phát trước khi có rotation: đổi một lần sang family mới
+            if (!consumeLegacy(rawToken, claims)) {
+                throw new BadRequestException("Invalid refresh token");
+            }
+            return issue(principal);
+        }
+        
+        String familyId = JwtTokenProvider.sessionOf(claims);
+        if (revocationIndex.isRevoked(familyId)) {
+            throw new BadRequestException("Invalid refresh token");
+        }
+        if (refreshTokenRepository.markUsed(claims.getId()).isEmpty()) {
+            boolean reused = refreshTokenRepository.findById(claims.getId())
+                    .filter(token -> token.getUsedAt() != null && !token.getRevoked())
+                    .isPresent();
+            if (reused) {
+                revocationIndex.revoke(familyId);
+            }
+            throw new BadRequestException("Invalid refresh token");
+        }
+        
+        return issue(principal, familyId);
+    }
+    
+    public void revoke(String rawToken, Claims claims) {
+        String familyId = JwtTokenProvider.sessionOf(claims);
+        if (familyId != null) {
+            revocationIndex.revoke(familyId);
+        } else if (claims.getId() == null) {
+            consumeLegacy(rawToken, claims);
+        }
+    }
+    
+    // Token cũ không có bản ghi: lưu digest của nó làm _id, insert trùng khóa nghĩa là token đã được dùng
+    private boolean consumeLegacy(String rawToken, Claims claims) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            refreshTokenRepository.insert(RefreshToken.builder()
+                    .id(LEGACY_ID_PREFIX + JwtTokenProvider.digestOf(rawToken))
+                    .userId(claims.getSubject())
+                    .usedAt(now)
+                    .createdAt(now)
+                    .expiresAt(LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()))
+                    .build());
+            return true;
+        } catch (DuplicateKeyException ex) {
+            return false;
+        }
+    }
+    
+    private IssuedTokens issue(UserPrincipal principal, String familyId) {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken token = refreshTokenRepository.insert(RefreshToken.builder()
+                .id(UUID.randomUUID().toString())
+                .familyId(familyId)
+                .userId(principal.getId())
+                .createdAt(now)
+                .expiresAt(now.plus(tokenProvider.getRefreshExpiration(), ChronoUnit.MILLIS))
+                .build());
+        
+        return new IssuedTokens(
+                tokenProvider.generateAccessToken(principal, familyId),
+                tokenProvider.generateRefreshToken(principal, token.getId(), familyId));
+    }
+    
+    public record IssuedTokens(String accessToken, String refreshToken) {
+    }
+}
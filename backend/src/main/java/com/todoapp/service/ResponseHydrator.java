@@ -0,0 +1,69 @@
+package com.todoapp.service;
+
+import com.todoapp.dto.response.CardResponse;
+import com.todoapp.dto.response.UserResponse;
+import com.todoapp.repository.CardRepository;
+import com.todoapp.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Gom id của cả danh sách rồi nạp user/card bằng một truy vấn $in, tránh findById cho từng phần tử
+@Component
+@RequiredArgsConstructor
+public class ResponseHydrator {
+    
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    
+    public Map<String, UserResponse> users(Collection<String> userIds) {
+        Set<String> ids = distinct(userIds);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        
+        Map<String, UserResponse> users = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), UserResponse.fromEntity(user)));
+        return users;
+    }
+    
+    public Map<String, CardResponse> cards(Collection<String> cardIds) {
+        Set<String> ids = distinct(cardIds);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        
+        Map<String, CardResponse> cards = new HashMap<>();
+        cardRepository.findAllById(ids).forEach(card -> cards.put(card.getId(), CardResponse.fromEntity(card)));
+        return cards;
+    }
+    
+    // Lấy id từ nhiều trường của cùng một danh sách (vd: senderId và receiverId)
+    @SafeVarargs
+    public static <T> Set<String> collectIds(Collection<T> items, Function<T, String>... extractors) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (T item : items) {
+            for (Function<T, String> extractor : extractors) {
+                String id = extractor.apply(item);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+    
+    private static Set<String> distinct(Collection<String> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
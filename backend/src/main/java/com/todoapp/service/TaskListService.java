@@ -1,11 +1,15 @@
 package com.todoapp.service;
 
+import com.todoapp.dto.request.ReorderRequest;
 import com.todoapp.dto.request.TaskListRequest;
 import com.todoapp.dto.response.CardResponse;
+import com.todoapp.dto.response.ReorderResponse;
 import com.todoapp.dto.response.TaskListResponse;
 import com.todoapp.exception.BadRequestException;
+import com.todoapp.exception.ConflictException;
 import com.todoapp.exception.ResourceNotFoundException;
-import com.todoapp.model.Board;
+import com.todoapp.exception.VersionConflictException;
+import com.todoapp.model.BoardRole;
 import com.todoapp.model.Card;
 import com.todoapp.model.TaskList;
 import com.todoapp.repository.BoardRepository;
@@ -13,27 +17,32 @@ import com.todoapp.repository.CardRepository;
 import com.todoapp.repository.TaskListRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TaskListService {
     
+    private static final int MAX_CARD_PAGE_SIZE = 500;
+    
     private final TaskListRepository taskListRepository;
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
     private final CardRepository cardRepository;
+    private final BoardSnapshotCache boardSnapshotCache;
+    private final RankOrderingService rankOrderingService;
+    private final BoardMutationSequencer boardMutationSequencer;
     
     public TaskListResponse createList(String boardId, TaskListRequest request, String userId) {
-        Board board = boardRepository.findById(boardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", boardId));
-        
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to add list to this board");
-        }
+        boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to add list to this board");
         
         TaskList taskList = TaskList.builder()
                 .title(request.getTitle())
@@ -41,84 +50,240 @@ public class TaskListService {
                 .cardOrderIds(new ArrayList<>())
                 .build();
         
-        taskList = taskListRepository.save(taskList);
-        
-        board.getListOrderIds().add(taskList.getId());
-        boardRepository.save(board);
+        long seq;
+        if (rankOrderingService.isEnabled()) {
+            // Rank cuối cùng phải tính trong lượt của board, nếu không hai list tạo cùng lúc sẽ trùng rank
+            BoardMutationSequencer.Sequenced<TaskList> created = boardMutationSequencer.run(boardId, () -> {
+                taskList.setRank(rankOrderingService.nextListRank(boardId));
+                return taskListRepository.save(taskList);
+            });
+            seq = created.seq();
+        } else {
+            taskListRepository.save(taskList);
+            seq = boardMutationSequencer.appendList(boardId, taskList.getId());
+        }
+        if (!boardRepository.incrementCounts(boardId, 1, 0, 0)) {
+            // Board bị xóa ở instance khác trong lúc quyền còn nằm trong cache: bỏ list vừa tạo
+            taskListRepository.deleteById(taskList.getId());
+            throw new ResourceNotFoundException("Board", "id", boardId);
+        }
+        boardSnapshotCache.markChanged(boardId);
         
-        return TaskListResponse.fromEntity(taskList);
+        TaskListResponse response = TaskListResponse.fromEntity(taskList);
+        response.setSeq(seq);
+        return response;
     }
     
+    // Chỉ $set title, không ghi lại cardOrderIds; lệch version trả 409 kèm list hiện tại
     public TaskListResponse updateList(String listId, TaskListRequest request, String userId) {
-        TaskList taskList = taskListRepository.findById(listId)
+        TaskList ref = taskListRepository.findRefById(listId)
                 .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
         
-        Board board = boardRepository.findById(taskList.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", taskList.getBoardId()));
+        boardAccessService.checkAccess(ref.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to update this list");
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this list");
+        if (request.getTitle() == null) {
+            return taskListRepository.findByIdAndDeletedAtIsNull(listId)
+                    .map(TaskListResponse::fromEntity)
+                    .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
+        }
+        if (!StringUtils.hasText(request.getTitle())) {
+            throw new BadRequestException("Title is required");
         }
         
-        taskList.setTitle(request.getTitle());
-        TaskList savedList = taskListRepository.save(taskList);
+        TaskList savedList = taskListRepository.patch(listId, Map.of("title", request.getTitle()), request.getVersion())
+                .orElseThrow(() -> {
+                    TaskList current = taskListRepository.findByIdAndDeletedAtIsNull(listId)
+                            .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
+                    return new VersionConflictException("List was modified by another request", TaskListResponse.fromEntity(current));
+                });
+        boardSnapshotCache.markChanged(ref.getBoardId());
         
         return TaskListResponse.fromEntity(savedList);
     }
     
-    @Transactional
+    // Đánh dấu xóa ngay, card bên trong do DeletionReaper dọn dần ở nền
     public void deleteList(String listId, String userId) {
-        TaskList taskList = taskListRepository.findById(listId)
+        TaskList taskList = taskListRepository.findByIdAndDeletedAtIsNull(listId)
                 .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
         
-        Board board = boardRepository.findById(taskList.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", taskList.getBoardId()));
+        boardAccessService.checkAccess(taskList.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to delete this list");
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to delete this list");
+        long cards = cardRepository.countByListId(listId);
+        long completedCards = cardRepository.countByListIdAndIsCompletedTrue(listId);
+        if (!taskListRepository.markDeleted(listId)) {
+            // Một request khác đã xóa list này
+            return;
         }
         
-        cardRepository.deleteByListId(listId);
-        
-        board.getListOrderIds().remove(listId);
-        boardRepository.save(board);
+        if (!rankOrderingService.isEnabled()) {
+            boardMutationSequencer.removeList(taskList.getBoardId(), listId);
+        }
         
-        taskListRepository.delete(taskList);
+        boardRepository.incrementCounts(taskList.getBoardId(), -1, -cards, -completedCards);
+        boardSnapshotCache.markChanged(taskList.getBoardId());
     }
     
     public TaskListResponse updateCardOrder(String listId, List<String> cardOrderIds, String userId) {
-        TaskList taskList = taskListRepository.findById(listId)
+        TaskList taskList = taskListRepository.findByIdAndDeletedAtIsNull(listId)
                 .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
         
-        Board board = boardRepository.findById(taskList.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", taskList.getBoardId()));
+        boardAccessService.checkAccess(taskList.getBoardId(), userId, BoardRole.EDITOR, "You don't have permission to update this list");
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to update this list");
-        }
+        // Chỉ ghi lại mảng thứ tự (hoặc rank), không lưu cả document list
+        long seq = rankOrderingService.isEnabled()
+                ? boardMutationSequencer.run(taskList.getBoardId(), () -> {
+                    rankOrderingService.assignCardRanks(listId, cardOrderIds);
+                    return null;
+                }).seq()
+                : boardMutationSequencer.setCardOrder(taskList.getBoardId(), listId, cardOrderIds);
+        boardSnapshotCache.markChanged(taskList.getBoardId());
         
         taskList.setCardOrderIds(cardOrderIds);
-        TaskList savedList = taskListRepository.save(taskList);
+        TaskListResponse response = TaskListResponse.fromEntity(taskList);
+        response.setSeq(seq);
+        return response;
+    }
+    
+    // Kéo thả một card trong list: chỉ gửi "đặt id sau afterId" kèm seq của board mà client đang thấy
+    public ReorderResponse moveCardAfter(String listId, ReorderRequest request, String userId) {
+        TaskList ref = taskListRepository.findRefById(listId)
+                .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
+        String boardId = ref.getBoardId();
         
-        return TaskListResponse.fromEntity(savedList);
+        boardAccessService.checkAccess(boardId, userId, BoardRole.EDITOR, "You don't have permission to update this list");
+        if (request.getId().equals(request.getAfterId())) {
+            throw new BadRequestException("A card cannot be placed after itself");
+        }
+        
+        // Kiểm tra base, id và ghi đều nằm trong lượt của board nên không chen được thay đổi nào khác
+        BoardMutationSequencer.Sequenced<Integer> moved = boardMutationSequencer.runAtSeq(boardId, seq -> {
+            requireBaseSeq(request, seq);
+            requireCardInList(request.getId(), listId);
+            if (request.getAfterId() != null) {
+                requireCardInList(request.getAfterId(), listId);
+            }
+            return rankOrderingService.isEnabled()
+                    ? moveCardAfterByRank(listId, request)
+                    : moveCardAfterInArray(listId, boardId, request);
+        });
+        boardSnapshotCache.markChanged(boardId);
+        
+        return ReorderResponse.builder()
+                .id(request.getId())
+                .afterId(request.getAfterId())
+                .position(moved.value())
+                .seq(moved.seq())
+                .build();
+    }
+    
+    private int moveCardAfterInArray(String listId, String boardId, ReorderRequest request) {
+        TaskList taskList = taskListRepository.findByIdAndDeletedAtIsNull(listId)
+                .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
+        
+        List<String> others = new ArrayList<>(taskList.getCardOrderIds());
+        others.removeIf(request.getId()::equals);
+        int index = request.getAfterId() == null ? 0 : others.indexOf(request.getAfterId()) + 1;
+        if (index == 0 && request.getAfterId() != null) {
+            throw new BadRequestException("Card " + request.getAfterId() + " is not in the list order");
+        }
+        
+        return taskListRepository.insertCardId(listId, boardId, request.getId(), index)
+                .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
+    }
+    
+    // Chỉ ghi rank mới của card được kéo, tính từ hai card lân cận
+    private int moveCardAfterByRank(String listId, ReorderRequest request) {
+        RankOrderingService.Slot slot = rankOrderingService.cardSlotAfter(listId, request.getId(), request.getAfterId());
+        if (!cardRepository.updateListId(request.getId(), listId, listId, slot.rank())) {
+            throw new ConflictException("Card was moved by another request, please reload the board");
+        }
+        return slot.position();
+    }
+    
+    private void requireCardInList(String cardId, String listId) {
+        boolean inList = cardRepository.findRefById(cardId)
+                .map(card -> listId.equals(card.getListId()))
+                .orElse(false);
+        if (!inList) {
+            throw new BadRequestException("Card " + cardId + " does not belong to this list");
+        }
     }
     
-    public TaskListResponse getListWithCards(String listId, String userId) {
-        TaskList taskList = taskListRepository.findById(listId)
+    private static void requireBaseSeq(ReorderRequest request, long currentSeq) {
+        if (request.getBaseSeq() != currentSeq) {
+            throw new VersionConflictException("Board order changed since it was loaded, please reload",
+                    ReorderResponse.builder().id(request.getId()).seq(currentSeq).build());
+        }
+    }
+    
+    // Card theo đúng thứ tự hiển thị, cắt theo cửa sổ [offset, offset + limit); không có limit thì lấy hết phần còn lại
+    public TaskListResponse getListWithCards(String listId, Integer offset, Integer limit, String userId) {
+        TaskList taskList = taskListRepository.findByIdAndDeletedAtIsNull(listId)
                 .orElseThrow(() -> new ResourceNotFoundException("List", "id", listId));
         
-        Board board = boardRepository.findById(taskList.getBoardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Board", "id", taskList.getBoardId()));
+        boardAccessService.checkAccess(taskList.getBoardId(), userId, BoardRole.VIEWER, "You don't have permission to access this list");
+        
+        int from = offset == null ? 0 : Math.max(offset, 0);
+        int pageSize = limit == null ? Integer.MAX_VALUE : Math.min(Math.max(limit, 1), MAX_CARD_PAGE_SIZE);
+        long end = (long) from + pageSize;
+        long cardCount = cardRepository.countByListId(listId);
         
-        if (!board.getOwnerId().equals(userId)) {
-            throw new BadRequestException("You don't have permission to access this list");
+        // offset là vị trí trong thứ tự hiển thị, không phải số card đã trả: ở chế độ mảng, id trong cardOrderIds
+        // không còn card tương ứng vẫn chiếm một vị trí, nên trang có thể ngắn hơn limit mà vẫn còn trang sau
+        List<Card> cards;
+        boolean hasMore;
+        if (rankOrderingService.isEnabled()) {
+            // Lấy dư một card để biết còn trang sau, không cần đếm
+            cards = new ArrayList<>(cardRepository.findPageInRankOrder(listId, from, plusOne(pageSize)));
+            hasMore = cards.size() > pageSize;
+            if (hasMore) {
+                cards.remove(pageSize);
+            }
+        } else {
+            List<String> orderedIds = new ArrayList<>(new LinkedHashSet<>(taskList.getCardOrderIds()));
+            cards = cardsInArrayOrder(listId, orderedIds, from, pageSize);
+            hasMore = end < orderedIds.size();
+            
+            // Trang chạm tới phần card chưa có trong mảng: lấy dư một card chưa xếp thay cho lần đếm
+            long remaining = end - orderedIds.size();
+            if (remaining >= 0) {
+                int take = (int) Math.min(remaining, pageSize);
+                List<Card> unordered = new ArrayList<>(cardRepository.findUnorderedPage(listId, orderedIds,
+                        Math.max(from - orderedIds.size(), 0), plusOne(take)));
+                hasMore = unordered.size() > take;
+                if (hasMore) {
+                    unordered.remove(take);
+                }
+                cards.addAll(unordered);
+            }
         }
         
-        List<Card> cards = cardRepository.findByListId(listId);
-        List<CardResponse> cardResponses = cards.stream()
+        TaskListResponse response = TaskListResponse.fromEntityWithCards(taskList, cards.stream()
                 .map(CardResponse::fromEntity)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        response.setCardCount(cardCount);
+        response.setNextOffset(hasMore ? (int) end : null);
+        return response;
+    }
+    
+    // Card ở các vị trí [from, from + limit) của cardOrderIds, bỏ qua id không còn card; phần card chưa có
+    // trong mảng do getListWithCards đọc tiếp
+    private List<Card> cardsInArrayOrder(String listId, List<String> orderedIds, int from, int limit) {
+        if (from >= orderedIds.size()) {
+            return new ArrayList<>();
+        }
         
-        return TaskListResponse.fromEntityWithCards(taskList, cardResponses);
+        List<String> ids = orderedIds.subList(from, (int) Math.min((long) from + limit, orderedIds.size()));
+        Map<String, Card> byId = cardRepository.findByListIdAndIdIn(listId, ids).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+    
+    // Không phân trang (limit = Integer.MAX_VALUE) thì không cộng thêm để tránh tràn số
+    private static int plusOne(int limit) {
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
     }
 }
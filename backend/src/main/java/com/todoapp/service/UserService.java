@@ -4,6 +4,7 @@ import com.todoapp.dto.response.UserResponse;
 import com.todoapp.exception.ResourceNotFoundException;
 import com.todoapp.model.User;
 import com.todoapp.repository.UserRepository;
+import com.todoapp.security.TokenRevocationRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -15,6 +16,7 @@ import java.util.stream.Collectors;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
     
     public List<UserResponse> searchUsers(String query, String currentUserId) {
         List<User> users = userRepository
@@ -33,4 +35,11 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
         return UserResponse.fromEntity(user);
     }
+    
+    // Không xóa dữ liệu, chỉ khóa tài khoản và thu hồi mọi token
+    public void deactivateAccount(String userId) {
+        if (!tokenRevocationRegistry.deactivate(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
+    }
 }
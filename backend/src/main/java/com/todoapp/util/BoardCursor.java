@@ -0,0 +1,43 @@
+package com.todoapp.util;
+
+import com.todoapp.exception.BadRequestException;
+import com.todoapp.model.Board;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Vị trí của một board trong danh sách trang chủ của một user, sắp theo (gắn sao, updatedAt, id) giảm dần.
+ * Dạng chuỗi: "{0|1}_{updatedAt}_{id}".
+ */
+public record BoardCursor(boolean starred, LocalDateTime updatedAt, String id) {
+    
+    public static BoardCursor of(Board board, String userId) {
+        return new BoardCursor(board.getStarredBy() != null && board.getStarredBy().contains(userId),
+                board.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS), board.getId());
+    }
+    
+    public static BoardCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        
+        int first = value.indexOf('_');
+        int last = value.lastIndexOf('_');
+        if (first != 1 || last <= first + 1 || last == value.length() - 1
+                || (value.charAt(0) != '0' && value.charAt(0) != '1')) {
+            throw new BadRequestException("Invalid cursor: " + value);
+        }
+        try {
+            return new BoardCursor(value.charAt(0) == '1',
+                    LocalDateTime.parse(value.substring(first + 1, last)), value.substring(last + 1));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: " + value);
+        }
+    }
+    
+    public String encode() {
+        return (starred ? "1" : "0") + "_" + updatedAt + "_" + id;
+    }
+}
@@ -0,0 +1,39 @@
+package com.todoapp.util;
+
+import com.todoapp.exception.BadRequestException;
+import com.todoapp.model.Message;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Vị trí của một tin nhắn trong hội thoại, dùng làm cursor phân trang theo (createdAt, id).
+ * Dạng chuỗi: "{createdAt}_{id}", createdAt làm tròn tới mili giây như khi lưu trong MongoDB.
+ */
+public record MessageCursor(LocalDateTime createdAt, String id) {
+    
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getCreatedAt().truncatedTo(ChronoUnit.MILLIS), message.getId());
+    }
+    
+    public static MessageCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        
+        int separator = value.lastIndexOf('_');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new BadRequestException("Invalid cursor: " + value);
+        }
+        try {
+            return new MessageCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: " + value);
+        }
+    }
+    
+    public String encode() {
+        return createdAt + "_" + id;
+    }
+}
@@ -0,0 +1,124 @@
+package com.todoapp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sinh khóa sắp xếp dạng chuỗi (kiểu LexoRank) cho card và list.
+ * Khóa so sánh theo thứ tự từ điển, luôn có thể chèn một khóa mới vào giữa hai khóa bất kỳ.
+ */
+public final class RankKeys {
+    
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+    
+    // Khóa chuẩn gồm WIDTH chữ số và một ký tự đuôi khác '0'
+    private static final int WIDTH = 5;
+    private static final long SPACE = (long) Math.pow(BASE, WIDTH);
+    private static final long STEP = BASE * BASE;
+    private static final char TAIL = 'i';
+    
+    public static final int MAX_LENGTH = 16;
+    
+    private RankKeys() {
+    }
+    
+    public static String initial() {
+        return format(SPACE / 2);
+    }
+    
+    public static String between(String lower, String upper) {
+        if (lower == null && upper == null) {
+            return initial();
+        }
+        if (upper == null) {
+            return after(lower);
+        }
+        if (lower == null) {
+            return before(upper);
+        }
+        if (lower.compareTo(upper) >= 0) {
+            throw new IllegalArgumentException("Rank " + lower + " must be lower than " + upper);
+        }
+        return midpoint(lower, upper);
+    }
+    
+    public static List<String> spread(int count) {
+        long step = Math.max(1, Math.min(STEP, SPACE / (count + 1L)));
+        long start = (SPACE - step * count) / 2;
+        
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(format(start + step * i));
+        }
+        return keys;
+    }
+    
+    public static boolean isTooLong(String key) {
+        return key != null && key.length() > MAX_LENGTH;
+    }
+    
+    private static String after(String key) {
+        long next = prefixValue(key) + STEP;
+        return next < SPACE ? format(next) : midpoint(key, null);
+    }
+    
+    private static String before(String key) {
+        long previous = prefixValue(key) - STEP;
+        return previous >= 0 ? format(previous) : midpoint("", key);
+    }
+    
+    // Tìm khóa nằm giữa a và b (b == null nghĩa là không có cận trên), giả định b không kết thúc bằng '0'
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            int common = 0;
+            while (common < b.length() && digitAt(a, common) == digit(b.charAt(common))) {
+                common++;
+            }
+            if (common > 0) {
+                String rest = a.length() > common ? a.substring(common) : "";
+                return b.substring(0, common) + midpoint(rest, b.substring(common));
+            }
+        }
+        
+        int lower = digitAt(a, 0);
+        int upper = b != null ? digit(b.charAt(0)) : BASE;
+        if (upper - lower > 1) {
+            return String.valueOf(DIGITS.charAt((lower + upper) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(lower) + midpoint(a.length() > 1 ? a.substring(1) : "", null);
+    }
+    
+    private static long prefixValue(String key) {
+        long value = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            value = value * BASE + digitAt(key, i);
+        }
+        return value;
+    }
+    
+    private static String format(long value) {
+        char[] chars = new char[WIDTH + 1];
+        for (int i = WIDTH - 1; i >= 0; i--) {
+            chars[i] = DIGITS.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        chars[WIDTH] = TAIL;
+        return new String(chars);
+    }
+    
+    private static int digitAt(String key, int index) {
+        return index < key.length() ? digit(key.charAt(index)) : 0;
+    }
+    
+    private static int digit(char c) {
+        int digit = DIGITS.indexOf(c);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid rank character: " + c);
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,37 @@
+package com.todoapp.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.todoapp.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserRepositoryCustomImplTest {
+    
+    @Test
+    void deactivateBumpsEpochAndSyncTimestamp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        
+        assertThat(new UserRepositoryCustomImpl(mongoTemplate).deactivate("u1")).isTrue();
+        
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(User.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        Document inc = (Document) update.getValue().getUpdateObject().get("$inc");
+        assertThat(set.get("isActive")).isEqualTo(false);
+        assertThat(set.get("tokenEpochUpdatedAt")).isNotNull();
+        assertThat(inc.get("tokenEpoch")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.todoapp.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh parseClaims khi tắt cache (maxEntries = 0, verify HMAC và parse JSON mỗi lần) với khi bật cache,
+ * nhiều thread cùng đọc một tập token như các request thật.
+ * Chạy: mvn test-compile rồi chạy main() của class này với classpath test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class JwtTokenProviderBenchmark {
+    
+    @Param({"0", "10000"})
+    int maxEntries;
+    
+    // Số token đang hoạt động (số user đang dùng)
+    @Param({"1000"})
+    int activeTokens;
+    
+    private JwtTokenProvider tokenProvider;
+    private String[] tokens;
+    
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[64];
+        ThreadLocalRandom.current().nextBytes(secret);
+        tokenProvider = new JwtTokenProvider(Base64.getEncoder().encodeToString(secret), 3_600_000L, 86_400_000L, maxEntries);
+        tokens = new String[activeTokens];
+        for (int i = 0; i < activeTokens; i++) {
+            UserPrincipal principal = UserPrincipal.builder()
+                    .id("user-" + i)
+                    .email("user" + i + "@example.com")
+                    .displayName("User " + i)
+                    .isPremium(false)
+                    .isActive(true)
+                    .build();
+            tokens[i] = tokenProvider.generateAccessToken(principal, "session-" + i);
+        }
+    }
+    
+    @Benchmark
+    public Object parseClaims() {
+        return tokenProvider.parseClaims(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtTokenProviderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.todoapp.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí tryAcquire trên đường nóng của AuthRateLimitFilter: nhiều IP khác nhau (mỗi bucket ít tranh chấp)
+ * và một IP duy nhất (mọi thread cùng một dải khóa). Để so sánh, một lần BCrypt ở đăng nhập tốn cỡ vài chục ms.
+ * Chạy: mvn test-compile rồi chạy main() của class này với classpath test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TokenBucketLimiterBenchmark {
+    
+    @Param({"10000"})
+    int distinctKeys;
+    
+    private TokenBucketLimiter limiter;
+    private String[] keys;
+    
+    @Setup
+    public void setUp() {
+        // Cấu hình giống auth.rate-limit.ip mặc định
+        limiter = new TokenBucketLimiter(60, 30);
+        keys = new String[distinctKeys];
+        for (int i = 0; i < distinctKeys; i++) {
+            keys[i] = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+        }
+    }
+    
+    @Benchmark
+    public long manyKeys() {
+        return limiter.tryAcquire(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+    
+    @Benchmark
+    public long singleKey() {
+        return limiter.tryAcquire(keys[0]);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenBucketLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.todoapp.security;
+
+import com.todoapp.model.User;
+import com.todoapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationRegistryTest {
+    
+    private UserRepository userRepository;
+    private TokenRevocationRegistry registry;
+    
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        registry = new TokenRevocationRegistry(userRepository, 86_400_000L);
+    }
+    
+    @Test
+    void deactivateRejectsEveryTokenOfTheUserImmediately() {
+        when(userRepository.deactivate("u1")).thenReturn(true);
+        
+        assertThat(registry.deactivate("u1")).isTrue();
+        
+        assertThat(registry.isRevoked("u1", 0)).isTrue();
+        assertThat(registry.isRevoked("u1", 1_000)).isTrue();
+        assertThat(registry.isRevoked("u2", 0)).isFalse();
+    }
+    
+    @Test
+    void deactivateUnknownUserRevokesNothing() {
+        when(userRepository.deactivate("missing")).thenReturn(false);
+        
+        assertThat(registry.deactivate("missing")).isFalse();
+        assertThat(registry.isRevoked("missing", 0)).isFalse();
+    }
+    
+    @Test
+    void syncPicksUpAccountDeactivatedOnAnotherInstance() {
+        User deactivated = User.builder().id("u1").isActive(false).tokenEpoch(3L).build();
+        User loggedOut = User.builder().id("u2").isActive(true).tokenEpoch(2L).build();
+        when(userRepository.findTokenRevocationsSince(any())).thenReturn(List.of(deactivated, loggedOut));
+        
+        registry.sync();
+        
+        assertThat(registry.isRevoked("u1", 3)).isTrue();
+        assertThat(registry.isRevoked("u1", 4)).isTrue();
+        assertThat(registry.isRevoked("u2", 1)).isTrue();
+        assertThat(registry.isRevoked("u2", 2)).isFalse();
+    }
+}